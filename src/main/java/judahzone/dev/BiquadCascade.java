@@ -0,0 +1,386 @@
+package judahzone.dev;
+
+import java.util.Arrays;
+
+import judahzone.filter.Coord;
+import judahzone.filter.FilterT;
+import judahzone.util.Constants;
+
+/** Cascade of RBJ biquads run in one pass over the buffer: every sample goes through all sections while
+ *  their transposed direct form II state sits in local variables, instead of one full memory pass per filter
+ *  (hiCut.process(buf) then lowCut.process(buf), or a drum's lo/body/hi trio).
+ *  <p>Sections are fused three at a time (then two, then one for the remainder), so the usual cut pair and
+ *  lo/body/hi trio are a single pass. The stereo path advances both channels in the same loop with identical
+ *  coefficients: two independent dependency chains the CPU overlaps.
+ *  <p>TDF-II per section: y = b0 x + z1; z1 = b1 x - a1 y + z2; z2 = b2 x - a2 y. */
+public final class BiquadCascade {
+
+	public enum Type { LoCut, HiCut, Peak }
+
+	private static final int COEFS = 5; // b0 b1 b2 a1 a2
+	private static final float BUTTERWORTH = (float) (1 / Math.sqrt(2));
+
+	private final int sections;
+	private final float sampleRate;
+	/** packed coefficients, COEFS per section */
+	private final float[] coef;
+	/** packed state, z1 z2 per section */
+	private final float[] left;
+	private final float[] right;
+
+	public BiquadCascade(int sections, float sampleRate) {
+		if (sections < 1)
+			throw new IllegalArgumentException("sections " + sections);
+		this.sections = sections;
+		this.sampleRate = sampleRate;
+		coef = new float[sections * COEFS];
+		left = new float[sections * 2];
+		right = new float[sections * 2];
+		for (int s = 0; s < sections; s++)
+			bypass(s);
+	}
+
+	public BiquadCascade(int sections) {
+		this(sections, Constants.sampleRate());
+	}
+
+	/** the channel strip's hi-cut + lo-cut pair */
+	public static BiquadCascade cut(float loHz, float hiHz, float q) {
+		BiquadCascade result = new BiquadCascade(2);
+		result.set(0, Type.LoCut, loHz, q, 0);
+		result.set(1, Type.HiCut, hiHz, q, 0);
+		return result;
+	}
+
+	/** a drum's lo-cut, body peak and hi-cut. Coord resonance is read as dB above Butterworth (see {@link #q(float)}),
+	 *  FilterT bandwidth is in octaves. */
+	public static BiquadCascade band(Coord lo, FilterT body, Coord hi) {
+		BiquadCascade result = new BiquadCascade(3);
+		result.set(0, Type.LoCut, lo);
+		result.set(1, body);
+		result.set(2, Type.HiCut, hi);
+		return result;
+	}
+
+	public int getSections() { return sections; }
+
+	/** @param coord cutoff and resonance in dB above Butterworth */
+	public void set(int section, Type cut, Coord coord) {
+		set(section, cut, coord.hz(), q(coord.reso()), 0);
+	}
+
+	/** resonance to Q: a cookbook cut's gain at w0 is Q, so reso is dB of peaking above a Butterworth cut's -3 dB;
+	 *  0 is Butterworth. An assumed scale for the kits' Coord values, not checked against MonoFilter's own. */
+	public static float q(float reso) {
+		return BUTTERWORTH * (float) Math.pow(10, reso / 20);
+	}
+
+	public void set(int section, FilterT peak) {
+		set(section, Type.Peak, peak.hz(), 0, peak.db(), peak.bw());
+	}
+
+	/** @param q LoCut/HiCut resonance (Butterworth if not positive)
+	 *  @param db Peak gain */
+	public void set(int section, Type type, float hz, float q, float db) {
+		set(section, type, hz, q, db, 1f);
+	}
+
+	/** RBJ cookbook coefficients, normalized by a0. Peak uses bw (octaves), the cuts use q. */
+	public void set(int section, Type type, float hz, float q, float db, float bw) {
+		final double w0 = 2 * Math.PI * Math.min(hz, sampleRate * 0.49) / sampleRate;
+		final double cos = Math.cos(w0), sin = Math.sin(w0);
+		final double b0, b1, b2, a0, a1, a2;
+		switch (type) {
+			case LoCut, HiCut -> {
+				double alpha = sin / (2 * (q > 0 ? q : BUTTERWORTH));
+				double k = type == Type.LoCut ? 1 + cos : 1 - cos;
+				b0 = k / 2;
+				b1 = type == Type.LoCut ? -k : k;
+				b2 = k / 2;
+				a0 = 1 + alpha;
+				a1 = -2 * cos;
+				a2 = 1 - alpha;
+			}
+			default -> {
+				double a = Math.pow(10, db / 40);
+				double alpha = sin * Math.sinh(Math.log(2) / 2 * bw * w0 / sin);
+				b0 = 1 + alpha * a;
+				b1 = -2 * cos;
+				b2 = 1 - alpha * a;
+				a0 = 1 + alpha / a;
+				a1 = -2 * cos;
+				a2 = 1 - alpha / a;
+			}
+		}
+		final int c = section * COEFS;
+		coef[c] = (float) (b0 / a0);
+		coef[c + 1] = (float) (b1 / a0);
+		coef[c + 2] = (float) (b2 / a0);
+		coef[c + 3] = (float) (a1 / a0);
+		coef[c + 4] = (float) (a2 / a0);
+	}
+
+	/** pass-through section */
+	public void bypass(int section) {
+		final int c = section * COEFS;
+		Arrays.fill(coef, c, c + COEFS, 0f);
+		coef[c] = 1f;
+	}
+
+	/** raw normalized coefficients (b0, b1, b2, a1, a2) for section */
+	public float[] getCoefficients(int section) {
+		return Arrays.copyOfRange(coef, section * COEFS, (section + 1) * COEFS);
+	}
+
+	public void reset() {
+		Arrays.fill(left, 0f);
+		Arrays.fill(right, 0f);
+	}
+
+	/** mono, in place, on the left state */
+	public void process(float[] buf) {
+		process(buf, 0, buf.length);
+	}
+
+	public void process(float[] buf, int off, int len) {
+		int s = 0;
+		for (; sections - s >= 3; s += 3)
+			three(coef, s, left, buf, off, len);
+		if (sections - s == 2)
+			two(coef, s, left, buf, off, len);
+		else if (sections - s == 1)
+			one(coef, s, left, buf, off, len);
+	}
+
+	/** stereo, in place, same response on both channels */
+	public void process(float[] l, float[] r) {
+		process(l, r, 0, Math.min(l.length, r.length));
+	}
+
+	public void process(float[] l, float[] r, int off, int len) {
+		stereo(l, off, r, off, 1, len);
+	}
+
+	/** stereo, in place, on interleaved frames (see {@link StereoPacked})
+	 *  @param frames number of left/right pairs */
+	public void processPacked(float[] packed, int frames) {
+		stereo(packed, 0, packed, 1, 2, frames);
+	}
+
+	private void stereo(float[] l, int li, float[] r, int ri, int stride, int len) {
+		int s = 0;
+		for (; sections - s >= 3; s += 3)
+			three(coef, s, left, right, l, li, r, ri, stride, len);
+		if (sections - s == 2)
+			two(coef, s, left, right, l, li, r, ri, stride, len);
+		else if (sections - s == 1)
+			one(coef, s, left, right, l, li, r, ri, stride, len);
+	}
+
+	private static void one(float[] c, int s, float[] z, float[] buf, int off, int len) {
+		final int k = s * COEFS, q = s * 2;
+		final float b0 = c[k], b1 = c[k + 1], b2 = c[k + 2], a1 = c[k + 3], a2 = c[k + 4];
+		float z1 = z[q], z2 = z[q + 1];
+		for (int i = off, end = off + len; i < end; i++) {
+			float x = buf[i];
+			float y = b0 * x + z1;
+			z1 = b1 * x - a1 * y + z2;
+			z2 = b2 * x - a2 * y;
+			buf[i] = y;
+		}
+		z[q] = z1;
+		z[q + 1] = z2;
+	}
+
+	private static void two(float[] c, int s, float[] z, float[] buf, int off, int len) {
+		final int k = s * COEFS, q = s * 2;
+		final float b0 = c[k], b1 = c[k + 1], b2 = c[k + 2], a1 = c[k + 3], a2 = c[k + 4];
+		final float d0 = c[k + 5], d1 = c[k + 6], d2 = c[k + 7], e1 = c[k + 8], e2 = c[k + 9];
+		float z1 = z[q], z2 = z[q + 1], w1 = z[q + 2], w2 = z[q + 3];
+		for (int i = off, end = off + len; i < end; i++) {
+			float x = buf[i];
+			float y = b0 * x + z1;
+			z1 = b1 * x - a1 * y + z2;
+			z2 = b2 * x - a2 * y;
+			float v = d0 * y + w1;
+			w1 = d1 * y - e1 * v + w2;
+			w2 = d2 * y - e2 * v;
+			buf[i] = v;
+		}
+		z[q] = z1;
+		z[q + 1] = z2;
+		z[q + 2] = w1;
+		z[q + 3] = w2;
+	}
+
+	private static void three(float[] c, int s, float[] z, float[] buf, int off, int len) {
+		final int k = s * COEFS, q = s * 2;
+		final float b0 = c[k], b1 = c[k + 1], b2 = c[k + 2], a1 = c[k + 3], a2 = c[k + 4];
+		final float d0 = c[k + 5], d1 = c[k + 6], d2 = c[k + 7], e1 = c[k + 8], e2 = c[k + 9];
+		final float f0 = c[k + 10], f1 = c[k + 11], f2 = c[k + 12], g1 = c[k + 13], g2 = c[k + 14];
+		float z1 = z[q], z2 = z[q + 1], w1 = z[q + 2], w2 = z[q + 3], u1 = z[q + 4], u2 = z[q + 5];
+		for (int i = off, end = off + len; i < end; i++) {
+			float x = buf[i];
+			float y = b0 * x + z1;
+			z1 = b1 * x - a1 * y + z2;
+			z2 = b2 * x - a2 * y;
+			float v = d0 * y + w1;
+			w1 = d1 * y - e1 * v + w2;
+			w2 = d2 * y - e2 * v;
+			float t = f0 * v + u1;
+			u1 = f1 * v - g1 * t + u2;
+			u2 = f2 * v - g2 * t;
+			buf[i] = t;
+		}
+		z[q] = z1;
+		z[q + 1] = z2;
+		z[q + 2] = w1;
+		z[q + 3] = w2;
+		z[q + 4] = u1;
+		z[q + 5] = u2;
+	}
+
+	private static void one(float[] c, int s, float[] zl, float[] zr, float[] l, int li, float[] r, int ri, int stride, int len) {
+		final int k = s * COEFS, q = s * 2;
+		final float b0 = c[k], b1 = c[k + 1], b2 = c[k + 2], a1 = c[k + 3], a2 = c[k + 4];
+		float l1 = zl[q], l2 = zl[q + 1];
+		float r1 = zr[q], r2 = zr[q + 1];
+		for (int n = 0; n < len; n++, li += stride, ri += stride) {
+			float xl = l[li], xr = r[ri];
+			float yl = b0 * xl + l1, yr = b0 * xr + r1;
+			l1 = b1 * xl - a1 * yl + l2;
+			r1 = b1 * xr - a1 * yr + r2;
+			l2 = b2 * xl - a2 * yl;
+			r2 = b2 * xr - a2 * yr;
+			l[li] = yl;
+			r[ri] = yr;
+		}
+		zl[q] = l1;
+		zl[q + 1] = l2;
+		zr[q] = r1;
+		zr[q + 1] = r2;
+	}
+
+	private static void two(float[] c, int s, float[] zl, float[] zr, float[] l, int li, float[] r, int ri, int stride, int len) {
+		final int k = s * COEFS, q = s * 2;
+		final float b0 = c[k], b1 = c[k + 1], b2 = c[k + 2], a1 = c[k + 3], a2 = c[k + 4];
+		final float d0 = c[k + 5], d1 = c[k + 6], d2 = c[k + 7], e1 = c[k + 8], e2 = c[k + 9];
+		float l1 = zl[q], l2 = zl[q + 1], lw1 = zl[q + 2], lw2 = zl[q + 3];
+		float r1 = zr[q], r2 = zr[q + 1], rw1 = zr[q + 2], rw2 = zr[q + 3];
+		for (int n = 0; n < len; n++, li += stride, ri += stride) {
+			float xl = l[li], xr = r[ri];
+			float yl = b0 * xl + l1, yr = b0 * xr + r1;
+			l1 = b1 * xl - a1 * yl + l2;
+			r1 = b1 * xr - a1 * yr + r2;
+			l2 = b2 * xl - a2 * yl;
+			r2 = b2 * xr - a2 * yr;
+			float vl = d0 * yl + lw1, vr = d0 * yr + rw1;
+			lw1 = d1 * yl - e1 * vl + lw2;
+			rw1 = d1 * yr - e1 * vr + rw2;
+			lw2 = d2 * yl - e2 * vl;
+			rw2 = d2 * yr - e2 * vr;
+			l[li] = vl;
+			r[ri] = vr;
+		}
+		zl[q] = l1;
+		zl[q + 1] = l2;
+		zl[q + 2] = lw1;
+		zl[q + 3] = lw2;
+		zr[q] = r1;
+		zr[q + 1] = r2;
+		zr[q + 2] = rw1;
+		zr[q + 3] = rw2;
+	}
+
+	private static void three(float[] c, int s, float[] zl, float[] zr, float[] l, int li, float[] r, int ri, int stride, int len) {
+		final int k = s * COEFS, q = s * 2;
+		final float b0 = c[k], b1 = c[k + 1], b2 = c[k + 2], a1 = c[k + 3], a2 = c[k + 4];
+		final float d0 = c[k + 5], d1 = c[k + 6], d2 = c[k + 7], e1 = c[k + 8], e2 = c[k + 9];
+		final float f0 = c[k + 10], f1 = c[k + 11], f2 = c[k + 12], g1 = c[k + 13], g2 = c[k + 14];
+		float l1 = zl[q], l2 = zl[q + 1], lw1 = zl[q + 2], lw2 = zl[q + 3], lu1 = zl[q + 4], lu2 = zl[q + 5];
+		float r1 = zr[q], r2 = zr[q + 1], rw1 = zr[q + 2], rw2 = zr[q + 3], ru1 = zr[q + 4], ru2 = zr[q + 5];
+		for (int n = 0; n < len; n++, li += stride, ri += stride) {
+			float xl = l[li], xr = r[ri];
+			float yl = b0 * xl + l1, yr = b0 * xr + r1;
+			l1 = b1 * xl - a1 * yl + l2;
+			r1 = b1 * xr - a1 * yr + r2;
+			l2 = b2 * xl - a2 * yl;
+			r2 = b2 * xr - a2 * yr;
+			float vl = d0 * yl + lw1, vr = d0 * yr + rw1;
+			lw1 = d1 * yl - e1 * vl + lw2;
+			rw1 = d1 * yr - e1 * vr + rw2;
+			lw2 = d2 * yl - e2 * vl;
+			rw2 = d2 * yr - e2 * vr;
+			float tl = f0 * vl + lu1, tr = f0 * vr + ru1;
+			lu1 = f1 * vl - g1 * tl + lu2;
+			ru1 = f1 * vr - g1 * tr + ru2;
+			lu2 = f2 * vl - g2 * tl;
+			ru2 = f2 * vr - g2 * tr;
+			l[li] = tl;
+			r[ri] = tr;
+		}
+		zl[q] = l1;
+		zl[q + 1] = l2;
+		zl[q + 2] = lw1;
+		zl[q + 3] = lw2;
+		zl[q + 4] = lu1;
+		zl[q + 5] = lu2;
+		zr[q] = r1;
+		zr[q + 1] = r2;
+		zr[q + 2] = rw1;
+		zr[q + 3] = rw2;
+		zr[q + 4] = ru1;
+		zr[q + 5] = ru2;
+	}
+
+	/** fused cascade against one pass per section (the MonoFilter-per-band pattern) */
+	public static void benchmark(int bufSize, int blocks) {
+		final float[] l = new float[bufSize];
+		final float[] r = new float[bufSize];
+		final float[] src = new float[bufSize];
+		SineSource.fill(SineSource.Backend.EXACT, src, 0, bufSize, 440, Constants.sampleRate(), 0.5, 0);
+		System.out.println("Biquad cascade, bufSize " + bufSize + ", " + blocks + " blocks per run");
+		System.out.printf("%-9s %14s %14s %14s%n", "sections", "separate ns", "fused ns", "stereo ns");
+		for (int sections = 1; sections <= 6; sections++) {
+			BiquadCascade fused = new BiquadCascade(sections);
+			BiquadCascade fusedRight = new BiquadCascade(sections); // mono: one state set per channel
+			BiquadCascade[] separate = new BiquadCascade[sections];
+			for (int s = 0; s < sections; s++) {
+				separate[s] = new BiquadCascade(1);
+				separate[s].set(0, Type.Peak, 200 * (s + 1), 0, 3, 1);
+				fused.set(s, Type.Peak, 200 * (s + 1), 0, 3, 1);
+				fusedRight.set(s, Type.Peak, 200 * (s + 1), 0, 3, 1);
+			}
+			double[] ns = new double[3];
+			for (int run = 0; run < 2; run++) { // first run is warmup
+				for (int mode = 0; mode < 3; mode++) {
+					long start = System.nanoTime();
+					for (int i = 0; i < blocks; i++) {
+						System.arraycopy(src, 0, l, 0, bufSize);
+						System.arraycopy(src, 0, r, 0, bufSize);
+						switch (mode) {
+							case 0 -> {
+								for (BiquadCascade b : separate)
+									b.process(l, r);
+							}
+							case 1 -> {
+								fused.process(l);
+								fusedRight.process(r);
+							}
+							default -> fused.process(l, r);
+						}
+					}
+					ns[mode] = (System.nanoTime() - start) / (double) blocks;
+				}
+			}
+			if (l[1] != l[1])
+				System.err.println("NaN produced");
+			System.out.printf("%-9d %14.0f %14.0f %14.0f%n", sections, ns[0], ns[1], ns[2]);
+		}
+	}
+
+	public static void main(String[] args) {
+		benchmark(Constants.bufSize(), 20_000);
+	}
+
+}
@@ -0,0 +1,273 @@
+package judahzone.dev;
+
+import java.util.Arrays;
+
+import judahzone.api.Curve;
+import judahzone.data.Letter;
+import judahzone.prism.Envelope.Delta;
+import judahzone.util.Constants;
+
+/** ADSR envelope rendered a block at a time instead of one process() call per sample.
+ *  <p>A block is split at stage boundaries and each run is filled by a tight loop:
+ *  ATK an arithmetic ramp, DK/REL an arithmetic ramp ({@link Curve#LINEAR}) or a multiply recurrence
+ *  (otherwise, exponential down to -60 dB then landing on the target). Whole SUS and IDLE blocks are
+ *  looked ahead and skipped: a constant gain or silence.
+ *  <p>Built from a shared {@link CurveTables.Table}, stages are copied from the table instead of computed.
+ *  <p>Output does not depend on how the audio is split into blocks. */
+public final class BlockEnvelope {
+
+	/** exponential segments decay to this fraction of their span before landing on target */
+	public static final float FLOOR = 0.001f;
+
+	private final float[] scratch;
+
+	private int attack;
+	private int decay;
+	private float sustain;
+	private int release;
+	private Curve curve;
+	private CurveTables.Table table;
+	private CurveTables.Table active; // latched by enter(), the table the current stage reads
+
+	private Delta stage = Delta.IDLE;
+	private int pos;      // samples into the current stage
+	private int length;   // samples in the current stage
+	private float from;   // level at stage start
+	private float to;     // level at stage end
+	private float slope;  // linear ramps
+	private float g, k, a, b; // exponential ramps: g *= k, out = a * g + b
+	private float value;  // last rendered level
+
+	public BlockEnvelope(int attackSamples, int decaySamples, float sustain, int releaseSamples, Curve curve) {
+		scratch = new float[Constants.bufSize()];
+		set(attackSamples, decaySamples, sustain, releaseSamples, curve);
+	}
+
+	public BlockEnvelope(Letter letter, Curve curve) {
+		this(letter.attackSamples(), letter.decaySamples(), letter.sustainLevel(),
+				Letter.percentToSamples(letter.releasePct(), Letter.MAX_DECAY_MS), curve);
+	}
+
+	public BlockEnvelope(Letter letter) {
+		this(letter, Curve.EXPONENTIAL);
+	}
+
+	public BlockEnvelope(CurveTables.Table table) {
+		scratch = new float[Constants.bufSize()];
+		set(table);
+	}
+
+	/** takes effect at the next stage */
+	public void set(int attackSamples, int decaySamples, float sustain, int releaseSamples, Curve curve) {
+		this.table = null;
+		this.attack = Math.max(0, attackSamples);
+		this.decay = Math.max(0, decaySamples);
+		this.sustain = Math.max(0f, Math.min(1f, sustain));
+		this.release = Math.max(0, releaseSamples);
+		this.curve = curve;
+	}
+
+	public void set(Letter letter) {
+		set(letter.attackSamples(), letter.decaySamples(), letter.sustainLevel(),
+				Letter.percentToSamples(letter.releasePct(), Letter.MAX_DECAY_MS), curve);
+	}
+
+	/** read stages from a shared table, takes effect at the next stage */
+	public void set(CurveTables.Table table) {
+		CurveTables.Key key = table.key();
+		set(key.attack(), key.decay(), key.sustain(), key.release(), key.curve());
+		this.table = table;
+	}
+
+	public CurveTables.Table getTable() { return table; }
+
+	/** start (or restart from the current level) the attack */
+	public void trigger() {
+		enter(Delta.ATK);
+	}
+
+	/** move to REL from the current level, unless already idle */
+	public void release() {
+		if (stage != Delta.IDLE && stage != Delta.REL)
+			enter(Delta.REL);
+	}
+
+	public void reset() {
+		value = 0f;
+		enter(Delta.IDLE);
+	}
+
+	public Delta getStage() { return stage; }
+
+	public boolean isPlaying() { return stage != Delta.IDLE; }
+
+	/** @return the most recently rendered level */
+	public float getValue() { return value; }
+
+	public int getAttackSamples() { return attack; }
+	public int getDecaySamples() { return decay; }
+	public int getReleaseSamples() { return release; }
+	public float getSustain() { return sustain; }
+
+	/** single sample, for callers not yet on blocks */
+	public float process() {
+		render(scratch, 0, 1);
+		return scratch[0];
+	}
+
+	/** Multiply buf by the envelope, zeroing once idle.
+	 *  @return number of samples the envelope was playing */
+	public int process(float[] buf) {
+		return process(buf, 0, buf.length);
+	}
+
+	public int process(float[] buf, int offset, int len) {
+		if (stage == Delta.IDLE) {
+			Arrays.fill(buf, offset, offset + len, 0f);
+			return 0;
+		}
+		if (stage == Delta.SUS) {
+			if (sustain != 1f)
+				for (int i = offset; i < offset + len; i++)
+					buf[i] *= sustain;
+			return len;
+		}
+		int playing = 0;
+		while (len > 0) {
+			final int n = Math.min(len, scratch.length);
+			playing += render(scratch, 0, n);
+			for (int i = 0; i < n; i++)
+				buf[offset + i] *= scratch[i];
+			offset += n;
+			len -= n;
+		}
+		return playing;
+	}
+
+	/** Write len envelope levels into out.
+	 *  @return number of samples written before going idle */
+	public int render(float[] out, int offset, int len) {
+		int written = 0;
+		while (len > 0) {
+			switch (stage) {
+				case IDLE -> {
+					Arrays.fill(out, offset, offset + len, 0f);
+					return written;
+				}
+				case SUS -> {
+					Arrays.fill(out, offset, offset + len, sustain);
+					return written + len;
+				}
+				default -> {
+					final int n = Math.min(len, length - pos);
+					if (active != null)
+						copy(out, offset, n);
+					else if (stage == Delta.ATK || curve == Curve.LINEAR)
+						ramp(out, offset, n);
+					else
+						exponential(out, offset, n);
+					pos += n;
+					offset += n;
+					len -= n;
+					written += n;
+					if (pos == length) {
+						value = to;
+						enter(next(stage));
+					}
+				}
+			}
+		}
+		return written;
+	}
+
+	private void ramp(float[] out, int offset, int n) {
+		final float start = from;
+		final float step = slope;
+		final int base = pos + 1;
+		for (int i = 0; i < n; i++)
+			out[offset + i] = start + step * (base + i);
+		value = out[offset + n - 1];
+	}
+
+	/** table attack is entered part way when retriggered above zero */
+	private void copy(float[] out, int offset, int n) {
+		switch (stage) {
+			case ATK -> System.arraycopy(active.attack, active.attack.length - length + pos, out, offset, n);
+			case DK -> System.arraycopy(active.decay, pos, out, offset, n);
+			default -> {
+				final float[] src = active.release;
+				final float scale = from;
+				for (int i = 0; i < n; i++)
+					out[offset + i] = scale * src[pos + i];
+			}
+		}
+		value = out[offset + n - 1];
+	}
+
+	private void exponential(float[] out, int offset, int n) {
+		float gain = g;
+		final float mul = k, scale = a, bias = b;
+		for (int i = 0; i < n; i++) {
+			gain *= mul;
+			out[offset + i] = scale * gain + bias;
+		}
+		g = gain;
+		value = out[offset + n - 1];
+	}
+
+	private Delta next(Delta current) {
+		return switch (current) {
+			case ATK -> Delta.DK;
+			case DK -> sustain > 0f ? Delta.SUS : Delta.IDLE;
+			default -> Delta.IDLE;
+		};
+	}
+
+	/** set up a stage from the current level, falling through stages that have no length */
+	private void enter(Delta target) {
+		from = value;
+		pos = 0;
+		active = table; // stage lengths below come from the same settings
+		switch (target) {
+			case ATK -> {
+				to = 1f;
+				length = Math.round((1f - from) * attack);
+				if (length == 0) {
+					value = 1f;
+					enter(Delta.DK);
+					return;
+				}
+			}
+			case DK -> {
+				to = sustain;
+				length = decay;
+				if (length == 0) {
+					value = sustain;
+					enter(next(Delta.DK));
+					return;
+				}
+			}
+			case REL -> {
+				to = 0f;
+				length = release;
+				if (length == 0 || from == 0f) {
+					value = 0f;
+					enter(Delta.IDLE);
+					return;
+				}
+			}
+			case SUS -> value = sustain;
+			default -> value = 0f;
+		}
+		stage = target;
+		if (stage == Delta.SUS || stage == Delta.IDLE)
+			return;
+		slope = (to - from) / length;
+		// g runs 1 -> FLOOR over the stage, out = to + (from - to) * (g - FLOOR) / (1 - FLOOR)
+		g = 1f;
+		k = (float) Math.pow(FLOOR, 1.0 / length);
+		a = (from - to) / (1f - FLOOR);
+		b = to - a * FLOOR;
+	}
+
+}
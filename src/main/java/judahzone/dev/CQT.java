@@ -180,6 +180,11 @@ public class CQT implements AudioProcessor {
 		kernel(); // ~100 msec
 	}
 
+	/** Same, on the shared FFT of fftSize from {@link FFTPlans} */
+	public CQT(int fftSize, float minFreq, float maxFreq, int binsPerOctave) {
+		this(FFTPlans.fft(fftSize), minFreq, maxFreq, binsPerOctave);
+	}
+
 
 	/** Pre-calculate Constant Q kernels */
 	private void kernel() {
@@ -0,0 +1,108 @@
+package judahzone.dev;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import judahzone.api.Curve;
+import judahzone.data.Letter;
+
+/** Interned envelope curves: voices with the same attack/decay/sustain/release/curve share one immutable
+ *  {@link Table} instead of each computing its own, so kit switches reuse what the last kit built and
+ *  every voice renders an identical shape.
+ *  <p>Lookups are synchronized and belong with kit setup, not the audio thread. Bounded by total
+ *  table samples, least recently used evicted first; voices still holding an evicted table keep it alive. */
+public final class CurveTables {
+
+	/** 1M samples, 4 MB */
+	public static final int DEFAULT_BUDGET = 1 << 20;
+
+	private static final CurveTables SHARED = new CurveTables();
+
+	public static CurveTables shared() { return SHARED; }
+
+	public static record Key(int attack, int decay, float sustain, int release, Curve curve) {
+		public static Key of(Letter letter, Curve curve) {
+			return new Key(letter.attackSamples(), letter.decaySamples(), letter.sustainLevel(),
+					Letter.percentToSamples(letter.releasePct(), Letter.MAX_DECAY_MS), curve);
+		}
+	}
+
+	/** Pre-rendered stages: attack 0 to 1, decay 1 to sustain, release 1 to 0 (scaled by the level released from).
+	 *  Never written after construction. */
+	public static final class Table {
+		private final Key key;
+		final float[] attack;
+		final float[] decay;
+		final float[] release;
+
+		Table(Key key) {
+			this.key = key;
+			attack = stage(new BlockEnvelope(key.attack(), 0, 1f, 0, key.curve()), key.attack(), false);
+			decay = stage(new BlockEnvelope(0, key.decay(), key.sustain(), 0, key.curve()), key.decay(), false);
+			release = stage(new BlockEnvelope(0, 0, 1f, key.release(), key.curve()), key.release(), true);
+		}
+
+		private static float[] stage(BlockEnvelope env, int length, boolean release) {
+			float[] result = new float[length];
+			env.trigger();
+			if (release)
+				env.release();
+			env.render(result, 0, length);
+			return result;
+		}
+
+		public Key key() { return key; }
+
+		public int samples() { return attack.length + decay.length + release.length; }
+	}
+
+	private final int budget;
+	private int cached;
+	private final LinkedHashMap<Key, Table> lru = new LinkedHashMap<>(16, 0.75f, true);
+
+	public CurveTables() { this(DEFAULT_BUDGET); }
+
+	/** @param budget maximum total samples held */
+	public CurveTables(int budget) {
+		this.budget = Math.max(1, budget);
+	}
+
+	public Table get(Letter letter, Curve curve) {
+		return get(Key.of(letter, curve));
+	}
+
+	/** @return the shared table for key, built on a miss */
+	public synchronized Table get(Key key) {
+		Table result = lru.get(key);
+		if (result == null) {
+			result = new Table(key);
+			lru.put(key, result);
+			cached += result.samples();
+			evict(result);
+		}
+		return result;
+	}
+
+	private void evict(Table keep) {
+		Iterator<Map.Entry<Key, Table>> it = lru.entrySet().iterator();
+		while (cached > budget && it.hasNext()) {
+			Table eldest = it.next().getValue();
+			if (eldest == keep)
+				continue; // always keep the newest, even if over budget by itself
+			cached -= eldest.samples();
+			it.remove();
+		}
+	}
+
+	public synchronized void clear() {
+		lru.clear();
+		cached = 0;
+	}
+
+	public synchronized int size() { return lru.size(); }
+
+	/** @return total samples held */
+	public synchronized int samples() { return cached; }
+
+}
@@ -0,0 +1,85 @@
+package judahzone.dev;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Lock-free single-producer/single-consumer ring of timestamped events, MIDI thread to audio thread.
+ *  <p>Each event is one long: type (8 bits), sample offset into the next audio block (24 bits) and a
+ *  float payload, so offering and polling never allocate. */
+public final class EventQueue {
+
+	public static final int TRIGGER = 1;
+	public static final int FUNDAMENTAL = 2;
+
+	/** returned by poll() when empty */
+	public static final long EMPTY = 0L;
+
+	private static final int OFFSET_MASK = 0xFFFFFF;
+
+	private final long[] ring;
+	private final int mask;
+	private final AtomicLong head = new AtomicLong(); // next read, consumer owned
+	private final AtomicLong tail = new AtomicLong(); // next write, producer owned
+
+	/** @param capacity rounded up to a power of two (at least 2) */
+	public EventQueue(int capacity) {
+		int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+		ring = new long[size];
+		mask = size - 1;
+	}
+
+	public EventQueue() {
+		this(64);
+	}
+
+	public static long encode(int type, int offset, float data) {
+		return ((long) (type & 0xFF) << 56) | ((long) (offset & OFFSET_MASK) << 32)
+				| (Float.floatToRawIntBits(data) & 0xFFFFFFFFL);
+	}
+
+	public static int type(long event) { return (int) (event >>> 56); }
+
+	public static int offset(long event) { return (int) (event >>> 32) & OFFSET_MASK; }
+
+	public static float data(long event) { return Float.intBitsToFloat((int) event); }
+
+	/** producer side
+	 * @return false if full, the event is dropped */
+	public boolean offer(int type, int offset, float data) {
+		final long t = tail.get();
+		if (t - head.get() == ring.length)
+			return false;
+		ring[(int) t & mask] = encode(type, offset, data);
+		tail.lazySet(t + 1);
+		return true;
+	}
+
+	/** consumer side
+	 * @return the next event or {@link #EMPTY} */
+	public long poll() {
+		final long h = head.get();
+		if (h == tail.get())
+			return EMPTY;
+		final long result = ring[(int) h & mask];
+		head.lazySet(h + 1);
+		return result;
+	}
+
+	/** consumer side, without removing */
+	public long peek() {
+		final long h = head.get();
+		return h == tail.get() ? EMPTY : ring[(int) h & mask];
+	}
+
+	public boolean isEmpty() {
+		return head.get() == tail.get();
+	}
+
+	public int size() {
+		return (int) (tail.get() - head.get());
+	}
+
+	public int capacity() {
+		return ring.length;
+	}
+
+}
@@ -84,7 +84,7 @@ import judahzone.util.MP3;
  * <packaging>pom</packaging>
  *
  * <p>Notes and commented files : net.judah.gui.fft_temp (I had FFTW native
- * library hooked up pretty easy)
+ * library hooked up pretty easy). FFTW now runs through FFM, see FFTWNative (src/main/java22, jdk22 profile).
  *
  * <p>JTransform (not yet integrated)
  */
@@ -127,6 +127,11 @@ public class FFTCompare {
         System.out.println("--- Tarsos DSP ---");
         runBenchmark(tarsos, interleaved.clone());
 
+        FFTLibraryWrapper fftw = fftw(FFT_SIZE); // falls back to Tarsos without the jdk22 build or libfftw3f
+        if (!(fftw instanceof TarsosWrapper))
+            System.out.println("\n--- FFTW (FFM, MEASURE) ---");
+        runBenchmark(fftw, interleaved.clone());
+
 //        FFTLibraryWrapper jtransforms = new JTransformsWrapper(FFT_SIZE);
 //        System.out.println("\n--- JTransforms (FloatFFT_1D) ---");
 //        runBenchmark(jtransforms, interleaved.clone());
@@ -138,6 +143,18 @@ public class FFTCompare {
 
     }
 
+    /** FFTWWrapper lives in src/main/java22, compiled only by the jdk22 profile */
+    static FFTLibraryWrapper fftw(int size) {
+        try {
+            return (FFTLibraryWrapper) Class.forName("judahzone.dev.FFTWWrapper")
+                    .getConstructor(int.class).newInstance(size);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            Throwable reason = e.getCause() == null ? e : e.getCause();
+            System.out.println("\n--- FFTW unavailable (" + reason + "), Tarsos fallback ---");
+            return new TarsosWrapper(size);
+        }
+    }
+
     public static void main(String[] args) {
     	test();
     	test();
@@ -174,7 +191,7 @@ class TarsosWrapper implements FFTLibraryWrapper {
     private final be.tarsos.dsp.util.fft.FFT fft;
 
     public TarsosWrapper(int fftSize) {
-        fft = new be.tarsos.dsp.util.fft.FFT(fftSize);
+        fft = FFTPlans.fft(fftSize);
     }
 
     @Override
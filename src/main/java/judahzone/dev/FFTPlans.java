@@ -0,0 +1,147 @@
+package judahzone.dev;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+import be.tarsos.dsp.util.fft.FFT;
+import be.tarsos.dsp.util.fft.WindowFunction;
+
+/** Global FFT cache: one windowless Tarsos FFT (twiddle tables) per size, and one {@link Plan} per
+ *  (size, signal length, window type) holding a precomputed window table, so spectrum views, tuners and CQTs
+ *  opened side by side share their setup instead of each building it again.
+ *  <p>A signal shorter than the transform is windowed over its own length and zero-padded to the FFT size in
+ *  the same pass ({@link Plan#forwardTransform(float[], int, float[])}); windowing a padded buffer as a whole
+ *  would taper the padding instead of the signal.
+ *  <p>Tarsos' FFT only reads its tables while transforming (JTransforms underneath), so the shared instance
+ *  is safe from any thread; anything a caller writes goes into their own buffer or a per-thread
+ *  {@link Plan#scratch()}. */
+public final class FFTPlans {
+
+	private FFTPlans() { }
+
+	private record Key(int size, int length, Class<? extends WindowFunction> window) { }
+
+	private static final ConcurrentHashMap<Integer, FFT> ffts = new ConcurrentHashMap<>();
+	private static final ConcurrentHashMap<Key, Plan> plans = new ConcurrentHashMap<>();
+
+	/** Shared transform of one size with an immutable window table over the signal length
+	 *  (null window: rectangular). */
+	public static final class Plan {
+		private final int size;
+		private final int length;
+		private final FFT fft;
+		private final float[] window;
+		private final ThreadLocal<float[]> scratch;
+
+		private Plan(int size, int length, FFT fft, float[] window) {
+			this.size = size;
+			this.length = length;
+			this.fft = fft;
+			this.window = window;
+			scratch = ThreadLocal.withInitial(() -> new float[size]);
+		}
+
+		public int size() { return size; }
+		/** signal samples per transform, the rest up to size is zero padding */
+		public int length() { return length; }
+		/** the shared windowless FFT */
+		public FFT fft() { return fft; }
+		public boolean isWindowed() { return window != null; }
+
+		public float window(int index) {
+			return window == null ? 1f : window[index];
+		}
+
+		/** this thread's size floats, contents left from its last use */
+		public float[] scratch() {
+			return scratch.get();
+		}
+
+		/** window the first length samples of data, zero up to size and transform in place (Tarsos packed layout) */
+		public void forwardTransform(float[] data) {
+			if (window != null)
+				for (int i = 0; i < length; i++)
+					data[i] *= window[i];
+			Arrays.fill(data, length, size, 0f);
+			fft.forwardTransform(data);
+		}
+
+		/** windowed copy of length samples of audio into buffer, zero-padded up to size, in one pass
+		 *  @param buffer at least size long; anything past size is left alone */
+		public void window(float[] audio, int offset, float[] buffer) {
+			if (window == null)
+				System.arraycopy(audio, offset, buffer, 0, length);
+			else
+				for (int i = 0; i < length; i++)
+					buffer[i] = audio[offset + i] * window[i];
+			Arrays.fill(buffer, length, size, 0f);
+		}
+
+		/** window, pad and transform length samples of audio (untouched) into buffer */
+		public void forwardTransform(float[] audio, int offset, float[] buffer) {
+			window(audio, offset, buffer);
+			fft.forwardTransform(buffer);
+		}
+
+		/** inverse, unwindowed, scaled by 1/size */
+		public void backwardsTransform(float[] data) {
+			fft.backwardsTransform(data);
+		}
+
+		/** @param data a size long spectrum, Tarsos' modulus asserts amplitudes is exactly half of it
+		 *  @param amplitudes size / 2 */
+		public void modulus(float[] data, float[] amplitudes) {
+			fft.modulus(data, amplitudes);
+		}
+
+		/** magnitudes of length samples of audio (untouched), transformed in this thread's scratch
+		 *  @param amplitudes size / 2 */
+		public void magnitudes(float[] audio, int offset, float[] amplitudes) {
+			final float[] buf = scratch.get();
+			forwardTransform(audio, offset, buf);
+			fft.modulus(buf, amplitudes);
+		}
+	}
+
+	/** the shared windowless FFT of size */
+	public static FFT fft(int size) {
+		if (size < 2)
+			throw new IllegalArgumentException("size " + size);
+		return ffts.computeIfAbsent(size, FFT::new);
+	}
+
+	/** rectangular (no) window */
+	public static Plan get(int size) {
+		return get(size, null);
+	}
+
+	/** @param window Tarsos window type with a no-arg constructor, or null for none */
+	public static Plan get(int size, Class<? extends WindowFunction> window) {
+		return get(size, size, window);
+	}
+
+	/** zero-padded: the window spans length signal samples, the transform size
+	 *  @param window Tarsos window type with a no-arg constructor, or null for none */
+	public static Plan get(int size, int length, Class<? extends WindowFunction> window) {
+		if (length < 1 || length > size)
+			throw new IllegalArgumentException("length " + length + " of " + size);
+		return plans.computeIfAbsent(new Key(size, length, window),
+				key -> new Plan(size, length, fft(size), curve(length, window)));
+	}
+
+	private static float[] curve(int length, Class<? extends WindowFunction> window) {
+		if (window == null)
+			return null;
+		try {
+			return window.getDeclaredConstructor().newInstance().generateCurve(length);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalArgumentException(window.getSimpleName(), e);
+		}
+	}
+
+	/** number of cached plans */
+	public static int cached() {
+		return plans.size();
+	}
+
+}
@@ -150,7 +150,7 @@ public class FFTTest {
 
 		final AudioDispatcher dispatcher = new AudioDispatcher(stream, audioBufferSize, 0);
 		dispatcher.addAudioProcessor(new AudioProcessor() {
-			private FFT fft = new FFT(512);
+			private FFT fft = FFTPlans.fft(512);
 
 			@Override
 			public void processingFinished() {
@@ -0,0 +1,108 @@
+package judahzone.dev;
+
+import java.util.Arrays;
+
+import judahzone.api.Hz;
+import judahzone.data.Postage;
+import judahzone.data.Shape;
+import judahzone.filter.Coord;
+import judahzone.filter.FilterT;
+import judahzone.fx.Gain.GainT;
+import judahzone.util.Constants;
+import net.judah.drums.Drama.Freqs;
+import net.judah.drums.DrumSetup;
+import net.judah.drums.DrumType;
+import net.judah.drums.fm.Algorithm;
+import net.judah.drums.fm.DX7;
+import net.judah.drums.fm.FMOsc;
+import net.judah.drums.fm.FMSetup.FMOscSetup;
+import net.judah.drums.fm.FMSetup.OpSetup;
+import net.judah.midi.Actives;
+
+/** Time the three FM paths against every DX7 preset:
+ *  <p>1. FMOsc, interpreting the Topology graph per sample.
+ *  <p>2. FMBlock, block-at-a-time operators.
+ *  <p>3. FMKernel, algorithm compiled into specialized operator steps.
+ *  <p>Each voice is retriggered whenever it stops sounding so every block does full work. */
+public class FMBench {
+
+	private static final int WARMUP_BLOCKS = 20_000;
+	private static final int BENCHMARK_BLOCKS = 50_000;
+	private static final float HZ = 220f;
+
+	private static final float[] left = new float[Constants.bufSize()];
+	private static final float[] right = new float[Constants.bufSize()];
+
+	interface Engine {
+		void trigger();
+		boolean isSounding();
+		void process(float[] l, float[] r);
+	}
+
+	public static void main(String[] args) {
+		System.out.println("FM benchmark, bufSize " + Constants.bufSize() + ", " + BENCHMARK_BLOCKS + " blocks per run");
+		System.out.printf("%-8s %12s %12s %12s %8s%n", "preset", "FMOsc ns", "FMBlock ns", "FMKernel ns", "speedup");
+		DrumSetup setup = new DrumSetup(DrumType.Snare, new GainT(1, 1, 0.5f, 0.5f), new Postage(10, 100),
+				new Freqs(new Coord(20, 1), new FilterT(440, 1, 1), new Coord(10000, 1)), new Hz(HZ), new String[] {"Algo"});
+		Actives mine = new Actives(null, 0);
+
+		for (int preset = 1; preset <= DX7.names.length; preset++) {
+			Algorithm algo = DX7.get(preset);
+
+			OpSetup[] ops = new OpSetup[DX7.OP_COUNT];
+			for (int i = 0; i < ops.length; i++)
+				ops[i] = new OpSetup(0.9f, 0.3f, 1f + i, new Postage(1, 500), Shape.SIN);
+			FMOsc osc = new FMOsc(setup, new FMOscSetup(algo, ops), mine);
+			osc.setFundamental(HZ);
+
+			FMBlock block = new FMBlock(algo);
+			FMKernel kernel = new FMKernel(algo);
+			for (int i = 0; i < DX7.OP_COUNT; i++) {
+				block.setOp(i, 0.9f, 0.3f, 1f + i, new Postage(1, 500), Shape.SIN);
+				kernel.setOp(i, 0.9f, 0.3f, 1f + i, new Postage(1, 500), Shape.SIN);
+			}
+			block.setFundamental(HZ);
+			kernel.setFundamental(HZ);
+
+			double interpreted = run(new Engine() {
+				@Override public void trigger() { osc.trigger(null); }
+				@Override public boolean isSounding() { return osc.isSounding(); }
+				@Override public void process(float[] l, float[] r) { osc.process(l, r); }
+			});
+			double blocks = run(new Engine() {
+				@Override public void trigger() { block.trigger(); }
+				@Override public boolean isSounding() { return block.isSounding(); }
+				@Override public void process(float[] l, float[] r) { block.process(l, r); }
+			});
+			double compiled = run(new Engine() {
+				@Override public void trigger() { kernel.trigger(); }
+				@Override public boolean isSounding() { return kernel.isSounding(); }
+				@Override public void process(float[] l, float[] r) { kernel.process(l, r); }
+			});
+			System.out.printf("%-8d %12.0f %12.0f %12.0f %7.2fx%n", preset, interpreted, blocks, compiled, interpreted / compiled);
+		}
+	}
+
+	/** @return average nanoseconds per block */
+	private static double run(Engine engine) {
+		cycle(engine, WARMUP_BLOCKS);
+		long start = System.nanoTime();
+		cycle(engine, BENCHMARK_BLOCKS);
+		return (System.nanoTime() - start) / (double) BENCHMARK_BLOCKS;
+	}
+
+	private static void cycle(Engine engine, int blocks) {
+		float check = 0;
+		for (int i = 0; i < blocks; i++) {
+			if (!engine.isSounding())
+				engine.trigger();
+			Arrays.fill(left, 0f);
+			Arrays.fill(right, 0f);
+			engine.process(left, right);
+			check += left[0];
+		}
+		if (check != check)
+			System.err.println("NaN produced");
+	}
+
+}
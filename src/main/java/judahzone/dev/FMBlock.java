@@ -0,0 +1,211 @@
+package judahzone.dev;
+
+import java.util.Arrays;
+
+import judahzone.data.Postage;
+import judahzone.data.Shape;
+import judahzone.prism.Envelope;
+import judahzone.util.Constants;
+import net.judah.drums.fm.Algorithm;
+
+/** Block-processing FM voice: each operator renders the whole buffer before the next one in
+ *  Topology evaluation order, instead of walking the operator graph once per sample.
+ *  <p>Non-feedback operators run in two passes: a phase pass (plain arithmetic the JIT can vectorize)
+ *  and a wavetable lookup pass. Feedback operators depend on their previous output and fall back
+ *  to a short scalar loop. Operator envelopes are applied a block at a time. Operators read the full
+ *  bandwidth level of {@link WavetableBank}, shared with every other oscillator.
+ *  <p>Operates on an {@link Algorithm} directly so it can be benchmarked against FMOsc. */
+public class FMBlock {
+
+	static final int LENGTH = WavetableBank.LENGTH;
+
+	protected final int ops;
+	protected final int bufSize;
+	protected final int[] order;
+	protected final int[][] modulators;
+	protected final float[][] scales;
+	protected final boolean[] feedback;
+	protected final boolean[] carrier;
+
+	protected final float[][] out;
+	protected final float[] mod;
+	protected final float[] pos;
+
+	protected final float[][] wave;
+	protected final float[] level;
+	protected final float[] fbAmount;
+	protected final float[] ratio;
+	protected final float[] inc;
+	protected final float[] phase;
+	protected final float[] fb1; // previous two samples of feedback operators
+	protected final float[] fb2;
+	protected final Envelope[] env;
+
+	private float gain = 1f;
+
+	public FMBlock(Algorithm algo, int bufSize) {
+		this.order = algo.evalOrder();
+		this.modulators = algo.modulatorsFor();
+		this.scales = algo.scaleFor();
+		this.feedback = algo.feedbackFlags();
+		this.ops = order.length;
+		this.bufSize = bufSize;
+
+		carrier = new boolean[ops];
+		Arrays.fill(carrier, true);
+		for (int op = 0; op < ops; op++)
+			for (int m : modulators[op])
+				carrier[m] = false;
+
+		out = new float[ops][bufSize];
+		mod = new float[bufSize];
+		pos = new float[bufSize];
+		wave = new float[ops][];
+		level = new float[ops];
+		fbAmount = new float[ops];
+		ratio = new float[ops];
+		inc = new float[ops];
+		phase = new float[ops];
+		fb1 = new float[ops];
+		fb2 = new float[ops];
+		env = new Envelope[ops];
+		for (int op = 0; op < ops; op++)
+			setOp(op, 0.9f, 0f, 1f, new Postage(10, 40), Shape.SIN);
+	}
+
+	public FMBlock(Algorithm algo) {
+		this(algo, Constants.bufSize());
+	}
+
+	public void setOp(int op, float lvl, float fb, float r, Postage postage, Shape shape) {
+		level[op] = lvl;
+		fbAmount[op] = fb;
+		ratio[op] = r;
+		wave[op] = WavetableBank.table(shape, 0); // full bandwidth, shared and guarded
+		env[op] = new Envelope(postage);
+	}
+
+	public void setGain(float gain) { this.gain = gain; }
+
+	public int getOpCount() { return ops; }
+
+	/** @param hz voice fundamental, operators track it by their ratio */
+	public void setFundamental(float hz) {
+		final float norm = hz / Constants.sampleRate();
+		for (int op = 0; op < ops; op++)
+			inc[op] = ratio[op] * norm;
+	}
+
+	public void trigger() {
+		for (int op = 0; op < ops; op++) {
+			phase[op] = 0f;
+			fb1[op] = fb2[op] = 0f;
+			env[op].trigger();
+		}
+	}
+
+	public boolean isSounding() {
+		for (int op = 0; op < ops; op++)
+			if (carrier[op] && env[op].isPlaying())
+				return true;
+		return false;
+	}
+
+	/** mix one buffer of audio into left/right */
+	public void process(float[] left, float[] right) {
+		if (!isSounding())
+			return;
+		final int n = Math.min(bufSize, left.length);
+		for (int idx = 0; idx < ops; idx++)
+			render(order[idx], n);
+		mix(left, right, n);
+	}
+
+	/** Interpreted path: sum the modulators a block at a time, then run the operator. */
+	protected void render(int op, int n) {
+		final int[] mods = modulators[op];
+		final float[] scale = scales[op];
+		Arrays.fill(mod, 0, n, 0f);
+		for (int j = 0; j < mods.length; j++) {
+			final float[] src = out[mods[j]];
+			final float s = scale[j];
+			for (int i = 0; i < n; i++)
+				mod[i] += s * src[i];
+		}
+		if (feedback[op] && fbAmount[op] != 0f)
+			feedbackOp(op, mod, n);
+		else
+			operator(op, mod, n);
+	}
+
+	/** vectorizable phase pass followed by the table lookup pass */
+	protected final void operator(int op, float[] modulation, int n) {
+		final float p0 = phase[op];
+		final float step = inc[op];
+		for (int i = 0; i < n; i++) {
+			float p = p0 + step * (i + 1) + modulation[i];
+			pos[i] = (p - (float) Math.floor(p)) * LENGTH;
+		}
+		phase[op] = frac(p0 + step * n);
+		lookup(op, n);
+	}
+
+	/** scalar loop, every sample depends on the last output */
+	protected final void feedbackOp(int op, float[] modulation, int n) {
+		final float[] table = wave[op];
+		final float[] o = out[op];
+		final float amt = fbAmount[op] * 0.5f;
+		final float lvl = level[op];
+		final float step = inc[op];
+		float p = phase[op];
+		float y1 = fb1[op], y2 = fb2[op];
+		for (int i = 0; i < n; i++) {
+			p += step;
+			if (p >= 1f)
+				p -= 1f;
+			float q = p + modulation[i] + amt * (y1 + y2);
+			float x = (q - (float) Math.floor(q)) * LENGTH;
+			int i0 = (int) x;
+			float f = x - i0;
+			float y = lvl * (table[i0] + f * (table[i0 + 1] - table[i0]));
+			y2 = y1;
+			y1 = y;
+			o[i] = y;
+		}
+		phase[op] = p;
+		fb1[op] = y1;
+		fb2[op] = y2;
+		env[op].process(o);
+	}
+
+	protected final void lookup(int op, int n) {
+		final float[] table = wave[op];
+		final float[] o = out[op];
+		final float lvl = level[op];
+		for (int i = 0; i < n; i++) {
+			float x = pos[i];
+			int i0 = (int) x;
+			float f = x - i0;
+			o[i] = lvl * (table[i0] + f * (table[i0 + 1] - table[i0]));
+		}
+		env[op].process(o);
+	}
+
+	protected final void mix(float[] left, float[] right, int n) {
+		for (int op = 0; op < ops; op++) {
+			if (!carrier[op])
+				continue;
+			final float[] o = out[op];
+			for (int i = 0; i < n; i++) {
+				float v = gain * o[i];
+				left[i] += v;
+				right[i] += v;
+			}
+		}
+	}
+
+	protected static float frac(float p) {
+		return p - (float) Math.floor(p);
+	}
+
+}
@@ -0,0 +1,110 @@
+package judahzone.dev;
+
+import net.judah.drums.fm.Algorithm;
+
+/** FMBlock with the algorithm compiled ahead of time: each operator's Topology entry is resolved once into a
+ *  kind (free, one modulator, two modulators, general) plus its modulator buffers and scales, and the
+ *  modulation is fused into the phase pass. No graph walk, modulator loop or mod buffer per sample, and no
+ *  virtual call either: process() is a switch over the kinds, so every operator body is a direct, inlinable call.
+ *  <p>Output is bit-identical to FMBlock (same float operations in the same order). */
+public class FMKernel extends FMBlock {
+
+	private static final int GENERAL = 0;
+	private static final int FREE = 1;
+	private static final int SINGLE = 2;
+	private static final int DUAL = 3;
+
+	/** per evaluation step, in order */
+	private final int[] kind;
+	private final float[][] srcA;
+	private final float[][] srcB;
+	private final float[] scaleA;
+	private final float[] scaleB;
+
+	public FMKernel(Algorithm algo, int bufSize) {
+		super(algo, bufSize);
+		kind = new int[ops];
+		srcA = new float[ops][];
+		srcB = new float[ops][];
+		scaleA = new float[ops];
+		scaleB = new float[ops];
+		for (int idx = 0; idx < ops; idx++)
+			compile(idx, order[idx]);
+	}
+
+	public FMKernel(Algorithm algo) {
+		this(algo, judahzone.util.Constants.bufSize());
+	}
+
+	@Override
+	public void process(float[] left, float[] right) {
+		if (!isSounding())
+			return;
+		final int n = Math.min(bufSize, left.length);
+		for (int idx = 0; idx < ops; idx++) {
+			final int op = order[idx];
+			switch (kind[idx]) {
+				case FREE -> free(op, n);
+				case SINGLE -> single(op, srcA[idx], scaleA[idx], n);
+				case DUAL -> dual(op, srcA[idx], scaleA[idx], srcB[idx], scaleB[idx], n);
+				default -> render(op, n);
+			}
+		}
+		mix(left, right, n);
+	}
+
+	private void compile(int idx, int op) {
+		final int[] mods = modulators[op];
+		final float[] scale = scales[op];
+		if (feedback[op]) // feedback amount may change at runtime, keep the general path
+			kind[idx] = GENERAL;
+		else if (mods.length == 0)
+			kind[idx] = FREE;
+		else if (mods.length == 1) {
+			kind[idx] = SINGLE;
+			srcA[idx] = out[mods[0]];
+			scaleA[idx] = scale[0];
+		} else if (mods.length == 2) {
+			kind[idx] = DUAL;
+			srcA[idx] = out[mods[0]];
+			scaleA[idx] = scale[0];
+			srcB[idx] = out[mods[1]];
+			scaleB[idx] = scale[1];
+		} else
+			kind[idx] = GENERAL;
+	}
+
+	private void free(int op, int n) {
+		final float p0 = phase[op];
+		final float step = inc[op];
+		for (int i = 0; i < n; i++) {
+			float p = p0 + step * (i + 1);
+			pos[i] = (p - (float) Math.floor(p)) * LENGTH;
+		}
+		phase[op] = frac(p0 + step * n);
+		lookup(op, n);
+	}
+
+	private void single(int op, float[] src, float s, int n) {
+		final float p0 = phase[op];
+		final float step = inc[op];
+		for (int i = 0; i < n; i++) {
+			float p = p0 + step * (i + 1) + s * src[i];
+			pos[i] = (p - (float) Math.floor(p)) * LENGTH;
+		}
+		phase[op] = frac(p0 + step * n);
+		lookup(op, n);
+	}
+
+	private void dual(int op, float[] srcA, float a, float[] srcB, float b, int n) {
+		final float p0 = phase[op];
+		final float step = inc[op];
+		for (int i = 0; i < n; i++) {
+			float p = p0 + step * (i + 1) + (a * srcA[i] + b * srcB[i]);
+			pos[i] = (p - (float) Math.floor(p)) * LENGTH;
+		}
+		phase[op] = frac(p0 + step * n);
+		lookup(op, n);
+	}
+
+}
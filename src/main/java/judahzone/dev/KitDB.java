@@ -2,9 +2,8 @@
 package judahzone.dev;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
-import java.util.List;
 import java.util.Map;
 
 import judahzone.data.Postage;
@@ -15,8 +14,21 @@ import judahzone.fx.Gain;
 /** Central kit database.  Populates built-in kits and provides lookup by name or program index. */
 public final class KitDB {
 
-    private static final Map<String, KitSetup> saved = new LinkedHashMap<>();
-    private static final List<String> order = new ArrayList<>();
+    /** Immutable view of the database. Readers (MIDI/audio threads) only ever dereference
+     *  the current snapshot; writers build a new one and publish it (copy-on-write). */
+    private static final class Snapshot {
+        final Map<String, KitSetup> byName;
+        final KitSetup[] byProgram;
+        final String[] names;
+
+        Snapshot(Map<String, KitSetup> byName) {
+            this.byName = byName;
+            this.byProgram = byName.values().toArray(new KitSetup[0]);
+            this.names = byName.keySet().toArray(new String[0]);
+        }
+    }
+
+    private static volatile Snapshot snapshot;
 
     static {
         initSaved();
@@ -26,22 +38,27 @@ public final class KitDB {
 
     public static KitSetup get(String name, boolean unused) {
         if (name == null) return null;
-        return saved.get(name);
+        return snapshot.byName.get(name);
     }
 
+    /** wait-free, safe to call from the MIDI thread on program change */
     public static KitSetup get(int data1, boolean unused) {
-        if (data1 < 0 || data1 >= order.size()) return null;
-        return saved.get(order.get(data1));
+        final KitSetup[] kits = snapshot.byProgram;
+        if (data1 < 0 || data1 >= kits.length) return null;
+        return kits[data1];
     }
 
     public static String[] names() {
-        return saved.keySet().toArray(new String[0]);
+        return snapshot.names.clone();
     }
 
     public static void addOrReplace(KitSetup kit, boolean persist) throws IOException {
         if (kit == null) return;
-        saved.put(kit.name(), kit);
-        if (!order.contains(kit.name())) order.add(kit.name());
+        synchronized (KitDB.class) { // serialize writers, readers never lock
+            LinkedHashMap<String, KitSetup> copy = new LinkedHashMap<>(snapshot.byName);
+            copy.put(kit.name(), kit); // replacing keeps the original program slot
+            snapshot = new Snapshot(Collections.unmodifiableMap(copy));
+        }
         if (persist) {
             // persist to disk if desired. left intentionally minimal.
             // writeJsonFile(...)
@@ -51,21 +68,10 @@ public final class KitDB {
     // ---------- initialization ----------
 
     private static void initSaved() {
-        KitSetup kDefault = makeDefault();
-        saved.put(kDefault.name(), kDefault);
-        order.add(kDefault.name());
-
-        KitSetup noise = makeNoiseKit();
-        saved.put(noise.name(), noise);
-        order.add(noise.name());
-
-        KitSetup fm = makeFMKit();
-        saved.put(fm.name(), fm);
-        order.add(fm.name());
-
-        KitSetup pluck = makePluckKit();
-        saved.put(pluck.name(), pluck);
-        order.add(pluck.name());
+        LinkedHashMap<String, KitSetup> saved = new LinkedHashMap<>();
+        for (KitSetup kit : new KitSetup[] { makeDefault(), makeNoiseKit(), makeFMKit(), makePluckKit() })
+            saved.put(kit.name(), kit);
+        snapshot = new Snapshot(Collections.unmodifiableMap(saved));
     }
 
     // Helper to construct Gain.GainT arrays from raw values
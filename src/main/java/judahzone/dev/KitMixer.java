@@ -0,0 +1,83 @@
+package judahzone.dev;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import judahzone.prism.Envelope.Delta;
+import net.judah.drums.Drum;
+
+/** Mixes a drum kit, calling process() only on sounding voices.
+ *  <p>An active-voice bitset is set on trigger() and cleared once a voice's envelope has reached
+ *  {@link Delta#IDLE} and it stops sounding, so an 8-voice kit with one hat ringing costs one voice.
+ *  trigger() may be called from the MIDI thread, process() belongs to the audio thread. */
+public final class KitMixer {
+
+	public static final int MAX_VOICES = Long.SIZE;
+
+	private final Drum[] voices;
+	private final AtomicLong active = new AtomicLong();
+
+	public KitMixer(Drum... voices) {
+		if (voices.length > MAX_VOICES)
+			throw new IllegalArgumentException(voices.length + " voices, max " + MAX_VOICES);
+		this.voices = voices;
+		long sounding = 0;
+		for (int i = 0; i < voices.length; i++)
+			if (voices[i].isSounding())
+				sounding |= 1L << i;
+		active.set(sounding);
+	}
+
+	public void trigger(int voice) {
+		voices[voice].trigger(null);
+		final long bit = 1L << voice;
+		long prev;
+		do {
+			prev = active.get();
+		} while (!active.compareAndSet(prev, prev | bit));
+	}
+
+	public void process(float[] sumL, float[] sumR) {
+		long bits = active.get();
+		long idle = 0;
+		while (bits != 0) {
+			final int i = Long.numberOfTrailingZeros(bits);
+			bits &= bits - 1;
+			final Drum voice = voices[i];
+			voice.process(sumL, sumR);
+			if (voice.getEnv().getStage() == Delta.IDLE && !voice.isSounding())
+				idle |= 1L << i;
+		}
+		if (idle != 0)
+			retire(idle);
+	}
+
+	/** clear idle voices, unless trigger() re-armed one since it was processed */
+	private void retire(long idle) {
+		long prev, next;
+		do {
+			prev = active.get();
+			next = prev;
+			long bits = idle;
+			while (bits != 0) {
+				final int i = Long.numberOfTrailingZeros(bits);
+				bits &= bits - 1;
+				if (!voices[i].isSounding())
+					next &= ~(1L << i);
+			}
+		} while (!active.compareAndSet(prev, next));
+	}
+
+	/** @return number of voices being processed */
+	public int active() {
+		return Long.bitCount(active.get());
+	}
+
+	public boolean isActive(int voice) {
+		return (active.get() & (1L << voice)) != 0;
+	}
+
+	public Drum get(int voice) { return voices[voice]; }
+
+	public int size() { return voices.length; }
+
+}
@@ -0,0 +1,99 @@
+package judahzone.dev;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import judahzone.data.Postage;
+import judahzone.dev.KitDB.KitSetup;
+import judahzone.prism.Envelope;
+
+/** Builds the next kit's voice state on a background thread so that a live program change
+ *  costs the audio thread a single pointer swap at the top of a cycle.
+ *  <p>preload() from the MIDI/GUI thread, swap() once per cycle from the audio thread.
+ *  A newer preload() supersedes any build still in flight. */
+public final class KitPreloader<T> implements AutoCloseable {
+
+	private final Function<KitSetup, T> factory;
+	private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+		Thread t = new Thread(r, KitPreloader.class.getSimpleName());
+		t.setDaemon(true);
+		return t;
+	});
+	private final AtomicInteger generation = new AtomicInteger();
+	private final AtomicReference<T> pending = new AtomicReference<>();
+	private volatile T current;
+
+	/** @param factory constructs fully initialized voice state (off the audio thread)
+	 *  @param initial kit state in place before the first swap, may be null */
+	public KitPreloader(Function<KitSetup, T> factory, T initial) {
+		this.factory = factory;
+		this.current = initial;
+	}
+
+	/** @return false if no kit lives at program index data1 */
+	public boolean preload(int data1) {
+		KitSetup kit = KitDB.get(data1, false);
+		if (kit == null)
+			return false;
+		preload(kit);
+		return true;
+	}
+
+	public void preload(KitSetup kit) {
+		if (kit == null)
+			return;
+		final int gen = generation.incrementAndGet();
+		worker.execute(() -> {
+			if (gen != generation.get())
+				return; // superseded before we started
+			T built = factory.apply(kit);
+			if (gen == generation.get())
+				pending.set(built);
+		});
+	}
+
+	/** Audio thread, cycle boundary: install a prepared kit if one is waiting.
+	 * @return the kit to play this cycle */
+	public T swap() {
+		T next = pending.getAndSet(null);
+		if (next != null)
+			current = next;
+		return current;
+	}
+
+	public T current() { return current; }
+
+	public boolean isPending() { return pending.get() != null; }
+
+	@Override
+	public void close() {
+		generation.incrementAndGet();
+		worker.shutdownNow();
+	}
+
+	/** Default voice state, everything a KitSetup can be turned into before the swap: one Envelope per voice
+	 *  from its Postage, and one stereo lo-cut/body/hi-cut {@link BiquadCascade} per voice with its
+	 *  coefficients already computed.
+	 *  <p>FM operator state is not prepared: KitSetup.fm is an untyped placeholder and null in every KitDB kit,
+	 *  so a kit carries no algorithm or operator ratios to build it from. */
+	public static record Prepared(KitSetup kit, Envelope[] env, BiquadCascade[] filter) {
+		public static Prepared prepare(KitSetup kit) {
+			Postage[] post = kit.env();
+			Envelope[] env = new Envelope[post.length];
+			for (int i = 0; i < post.length; i++)
+				env[i] = new Envelope(post[i]);
+			BiquadCascade[] filter = new BiquadCascade[kit.body().length];
+			for (int i = 0; i < filter.length; i++)
+				filter[i] = BiquadCascade.band(kit.lowCut()[i], kit.body()[i], kit.hiCut()[i]);
+			return new Prepared(kit, env, filter);
+		}
+	}
+
+	public static KitPreloader<Prepared> prepared() {
+		return new KitPreloader<>(Prepared::prepare, Prepared.prepare(KitDB.get(0, false)));
+	}
+
+}
@@ -0,0 +1,252 @@
+package judahzone.dev;
+
+import java.util.EnumMap;
+
+import judahzone.fx.op.Noise;
+import judahzone.fx.op.Noise.Colour;
+import judahzone.util.Constants;
+
+/** Block noise engine: white noise from one xorshift32 generator per sample slot of the block,
+ *  so the RNG is a flat loop of shifts and xors the JIT can vectorize, followed by a per-colour
+ *  shaping pass.
+ *  <p>Shaping: WHITE none, VIOLET first difference, VELVET sparse signed impulses (all per-sample
+ *  independent), PINK 3-pole (Kellet), BLUE differenced pink, BROWN leaky integrator.
+ *  The recursive filters keep their state in locals for the whole block.
+ *  <p>Table mode streams a pre-shaped, normalized noise table instead (one arraycopy per block),
+ *  jumping to a random position on every trigger(); the cheapest source for hats and snares.
+ *  <p>Every colour is normalized to {@link Noise#TARGET_RMS}. fill() is allocation free; the first use of a
+ *  colour builds its table, so set colours off the audio thread. */
+public final class NoiseBlock {
+
+	public enum Tint {
+		WHITE, PINK, BROWN, BLUE, VIOLET, VELVET;
+
+		/** GREY approximated by PINK
+		 *  @throws IllegalArgumentException for a colour without a tint */
+		public static Tint of(Colour colour) {
+			return switch (colour) {
+				case WHITE -> WHITE;
+				case PINK, GREY -> PINK;
+				case BROWN -> BROWN;
+				case VELVET -> VELVET;
+				default -> throw new IllegalArgumentException("no block noise for " + colour);
+			};
+		}
+	}
+
+	public static final int TABLE_SIZE = 1 << 16;
+	/** velvet impulses per second */
+	public static final float VELVET_DENSITY = 2000f;
+	private static final float SCALE = 0x1p-31f;
+	private static final float LEAK = 0.995f;
+	private static final int CHUNK = 4096;
+
+	private static final EnumMap<Tint, float[]> TABLES = new EnumMap<>(Tint.class);
+	private static final float[] GAIN = new float[Tint.values().length];
+
+	private final int[] lanes;
+	private Tint tint = Tint.WHITE;
+	private float gain;
+	private boolean table;
+	private float[] shaped;
+	private int read;
+	private int jump;
+
+	// filter state
+	private float prev; // last sample before differencing
+	private float b0, b1, b2;
+	private float brown;
+
+	/** @param maxBlock lanes of the generator, longer fills are done in chunks */
+	public NoiseBlock(int maxBlock, long seed) {
+		this(seed(maxBlock, seed));
+		setTint(Tint.WHITE);
+	}
+
+	public NoiseBlock() {
+		this(Constants.bufSize(), System.nanoTime());
+	}
+
+	/** unnormalized, for building tables */
+	private NoiseBlock(int[] lanes) {
+		this.lanes = lanes;
+		jump = lanes[0];
+	}
+
+	private static int[] seed(int lanes, long seed) {
+		int[] result = new int[lanes];
+		long s = seed;
+		for (int i = 0; i < lanes; i++) {
+			s += 0x9E3779B97F4A7C15L; // splitmix64
+			long z = s;
+			z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+			z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+			int v = (int) (z ^ (z >>> 31));
+			result[i] = v == 0 ? 0x6D2B79F5 : v;
+		}
+		return result;
+	}
+
+	public void setColour(Colour colour) {
+		setTint(Tint.of(colour));
+	}
+
+	public void setTint(Tint tint) {
+		this.tint = tint;
+		gain = gain(tint);
+		if (table)
+			shaped = table(tint);
+	}
+
+	public Tint getTint() { return tint; }
+
+	/** stream the pre-shaped table instead of generating */
+	public void setTable(boolean on) {
+		table = on;
+		shaped = on ? table(tint) : null;
+	}
+
+	public boolean isTable() { return table; }
+
+	/** new hit: table mode jumps to a random spot so consecutive hits differ */
+	public void trigger() {
+		int x = jump;
+		x ^= x << 13;
+		x ^= x >>> 17;
+		x ^= x << 5;
+		jump = x;
+		read = x & (TABLE_SIZE - 1);
+	}
+
+	/** overwrite buf[offset, offset + len) with noise */
+	public void fill(float[] buf, int offset, int len) {
+		if (table) {
+			stream(buf, offset, len);
+			return;
+		}
+		while (len > 0) {
+			final int n = Math.min(len, lanes.length);
+			white(buf, offset, n);
+			shape(buf, offset, n, gain);
+			offset += n;
+			len -= n;
+		}
+	}
+
+	private void stream(float[] buf, int offset, int len) {
+		final float[] src = shaped;
+		while (len > 0) {
+			final int n = Math.min(len, TABLE_SIZE - read);
+			System.arraycopy(src, read, buf, offset, n);
+			read = (read + n) & (TABLE_SIZE - 1);
+			offset += n;
+			len -= n;
+		}
+	}
+
+	/** uniform [-1, 1), n <= lanes */
+	private void white(float[] buf, int offset, int n) {
+		final int[] s = lanes;
+		for (int i = 0; i < n; i++) {
+			int x = s[i];
+			x ^= x << 13;
+			x ^= x >>> 17;
+			x ^= x << 5;
+			s[i] = x;
+			buf[offset + i] = x * SCALE;
+		}
+	}
+
+	private void shape(float[] buf, int offset, int n, float g) {
+		final int end = offset + n;
+		switch (tint) {
+			case WHITE -> {
+				for (int i = offset; i < end; i++)
+					buf[i] *= g;
+			}
+			case VIOLET -> difference(buf, offset, end, g);
+			case VELVET -> {
+				final float p = VELVET_DENSITY / Constants.sampleRate();
+				for (int i = offset; i < end; i++) {
+					final float x = buf[i];
+					buf[i] = Math.abs(x) < p ? Math.copySign(g, x) : 0f;
+				}
+			}
+			case PINK -> pink(buf, offset, end, g);
+			case BLUE -> {
+				pink(buf, offset, end, 1f);
+				difference(buf, offset, end, g);
+			}
+			case BROWN -> {
+				float y = brown;
+				for (int i = offset; i < end; i++) {
+					y = LEAK * y + buf[i];
+					buf[i] = g * y;
+				}
+				brown = y;
+			}
+		}
+	}
+
+	/** Paul Kellet's economy pink filter */
+	private void pink(float[] buf, int offset, int end, float g) {
+		float s0 = b0, s1 = b1, s2 = b2;
+		for (int i = offset; i < end; i++) {
+			final float w = buf[i];
+			s0 = 0.99765f * s0 + w * 0.0990460f;
+			s1 = 0.96300f * s1 + w * 0.2965164f;
+			s2 = 0.57000f * s2 + w * 1.0526913f;
+			buf[i] = g * (s0 + s1 + s2 + w * 0.1848f);
+		}
+		b0 = s0;
+		b1 = s1;
+		b2 = s2;
+	}
+
+	/** y[i] = g * (x[i] - x[i-1]), in place, walking backwards */
+	private void difference(float[] buf, int offset, int end, float g) {
+		final float last = buf[end - 1];
+		for (int i = end - 1; i > offset; i--)
+			buf[i] = g * (buf[i] - buf[i - 1]);
+		buf[offset] = g * (buf[offset] - prev);
+		prev = last;
+	}
+
+	/** @return pre-shaped noise at TARGET_RMS, built on first use and never modified */
+	public static synchronized float[] table(Tint tint) {
+		float[] result = TABLES.get(tint);
+		if (result == null) {
+			result = build(tint);
+			TABLES.put(tint, result);
+		}
+		return result;
+	}
+
+	/** @return the gain that brings a colour's raw filter output to TARGET_RMS */
+	static synchronized float gain(Tint tint) {
+		table(tint);
+		return GAIN[tint.ordinal()];
+	}
+
+	private static float[] build(Tint tint) {
+		NoiseBlock gen = new NoiseBlock(seed(CHUNK, 0x5EED + tint.ordinal()));
+		gen.tint = tint;
+		float[] result = new float[TABLE_SIZE];
+		// settle the recursive filters, then render unscaled
+		gen.white(result, 0, CHUNK);
+		gen.shape(result, 0, CHUNK, 1f);
+		for (int i = 0; i < TABLE_SIZE; i += CHUNK) {
+			gen.white(result, i, CHUNK);
+			gen.shape(result, i, CHUNK, 1f);
+		}
+		double sum = 0;
+		for (float f : result)
+			sum += f * f;
+		final float g = (float) (Noise.TARGET_RMS / Math.sqrt(sum / TABLE_SIZE));
+		for (int i = 0; i < TABLE_SIZE; i++)
+			result[i] *= g;
+		GAIN[tint.ordinal()] = g;
+		return result;
+	}
+
+}
@@ -0,0 +1,373 @@
+package judahzone.dev;
+
+import java.util.Arrays;
+
+import judahzone.util.Constants;
+
+/** 2x/4x/8x up/down-sampler built from cascaded polyphase half-band stages, so a nonlinearity
+ *  (Overdrive, a noise source, a waveshaper) can run at a higher rate without the whole chain doing so.
+ *  <p>{@link Mode#LINEAR}: symmetric windowed-sinc half-band FIR. Every other tap of a half-band is zero, so
+ *  each stage splits into a pure-delay branch and a short symmetric branch run at the low rate; the symmetric
+ *  branch is accumulated a tap at a time over the whole block (loops the JIT can vectorize). Constant,
+ *  fractional latency: see {@link #latency()}.
+ *  <p>{@link Mode#MINIMUM}: polyphase IIR half-band, two parallel chains of first order allpasses in z^-2
+ *  (elliptic coefficients, designed at class load). Far cheaper and lower latency, not phase-linear.
+ *  <p>Later stages see a wider transition band and use shorter filters, which sets the worst image up to
+ *  0.4 fs: LINEAR about -92, -89 and -76 dB at 2x, 4x and 8x, MINIMUM about -107, -85 and -85 dB.
+ *  OversamplerTest holds every factor under -70 dB. All state and scratch is allocated
+ *  up front for blocks of up to maxBlock samples; one instance per channel. */
+public final class Oversampler {
+
+	public enum Mode { LINEAR, MINIMUM }
+
+	/** work done at the oversampled rate, in place */
+	@FunctionalInterface
+	public interface Stage {
+		void process(float[] buf, int len);
+	}
+
+	/** FIR taps per side (nonzero, excluding centre) for stages 2x, 4x, 8x */
+	static final int[] FIR_TAPS = {32, 8, 5};
+	/** allpass coefficients and normalized transition bandwidth for stages 2x, 4x, 8x */
+	static final int[] IIR_COEFS = {8, 4, 3};
+	static final double[] IIR_TRANSITION = {0.05, 0.15, 0.3};
+	private static final double[][] IIR_DESIGN = new double[IIR_COEFS.length][];
+	static {
+		for (int i = 0; i < IIR_COEFS.length; i++)
+			IIR_DESIGN[i] = allpassCoefs(IIR_COEFS[i], IIR_TRANSITION[i]);
+	}
+
+	private final int factor;
+	private final Mode mode;
+	private final int maxBlock;
+	private final HalfBand[] stages;
+	private final float[] ping;
+	private final float[] pong;
+
+	/** @param factor 1, 2, 4 or 8 (1 is a pass-through) */
+	public Oversampler(int factor, Mode mode, int maxBlock) {
+		if (factor != 1 && factor != 2 && factor != 4 && factor != 8)
+			throw new IllegalArgumentException("factor " + factor);
+		this.factor = factor;
+		this.mode = mode;
+		this.maxBlock = maxBlock;
+		stages = new HalfBand[Integer.numberOfTrailingZeros(factor)];
+		for (int s = 0; s < stages.length; s++) {
+			int in = maxBlock << s; // low-rate samples per block at this stage
+			stages[s] = mode == Mode.LINEAR ? new FIR(halfBand(FIR_TAPS[s]), in) : new IIR(IIR_DESIGN[s]);
+		}
+		ping = new float[maxBlock * factor];
+		pong = new float[maxBlock * factor];
+	}
+
+	public Oversampler(int factor, Mode mode) {
+		this(factor, mode, Constants.bufSize());
+	}
+
+	public int getFactor() { return factor; }
+	public Mode getMode() { return mode; }
+	public int getMaxBlock() { return maxBlock; }
+
+	/** Round trip (up then down) delay in base-rate samples. Exact for LINEAR; MINIMUM has no constant
+	 *  delay (group delay varies with frequency), reported as 0. */
+	public float latency() {
+		if (mode == Mode.MINIMUM)
+			return 0f;
+		float result = 0f;
+		for (int s = 0; s < stages.length; s++)
+			result += (2 * FIR_TAPS[s] - 1) / (float) (1 << s);
+		return result;
+	}
+
+	/** Upsample len base-rate samples.
+	 *  @return internal buffer holding len * factor samples, valid until the next call */
+	public float[] up(float[] in, int len) {
+		check(len);
+		if (stages.length == 0) {
+			System.arraycopy(in, 0, ping, 0, len);
+			return ping;
+		}
+		float[] src = in;
+		int n = len;
+		for (int s = 0; s < stages.length; s++) {
+			float[] dst = src == ping ? pong : ping;
+			stages[s].up(src, n, dst);
+			src = dst;
+			n <<= 1;
+		}
+		return src;
+	}
+
+	/** Downsample len * factor samples of hi into len base-rate samples of out (hi may be the buffer from {@link #up}). */
+	public void down(float[] hi, float[] out, int len) {
+		check(len);
+		if (stages.length == 0) {
+			System.arraycopy(hi, 0, out, 0, len);
+			return;
+		}
+		float[] src = hi;
+		int n = len * factor;
+		for (int s = stages.length - 1; s >= 0; s--) {
+			n >>= 1;
+			float[] dst = s == 0 ? out : src == ping ? pong : ping;
+			stages[s].down(src, n, dst);
+			src = dst;
+		}
+	}
+
+	/** upsample buf, run stage over the oversampled block, downsample back into buf */
+	public void process(float[] buf, int len, Stage stage) {
+		float[] hi = up(buf, len);
+		stage.process(hi, len * factor);
+		down(hi, buf, len);
+	}
+
+	public void process(float[] buf, Stage stage) {
+		process(buf, Math.min(buf.length, maxBlock), stage);
+	}
+
+	public void reset() {
+		for (HalfBand s : stages)
+			s.reset();
+	}
+
+	private void check(int len) {
+		if (len > maxBlock)
+			throw new IllegalArgumentException("block " + len + " > " + maxBlock);
+	}
+
+	/** one 2x stage: in holds n low-rate samples (up) or 2n high-rate samples (down) */
+	private interface HalfBand {
+		void up(float[] in, int n, float[] out);
+		void down(float[] in, int n, float[] out);
+		void reset();
+	}
+
+	/** Kaiser-windowed half-band sinc, odd taps only: h[c + (2i + 1)] for i in 0..taps-1 (centre is 0.5).
+	 *  Index i = 0 is the tap nearest the centre. */
+	static double[] halfBand(int taps) {
+		final double beta = 8.0;
+		final double half = 2 * taps; // window half-width, taps sit at odd offsets 1..2*taps-1
+		double[] result = new double[taps];
+		for (int i = 0; i < taps; i++) {
+			int d = 2 * i + 1;
+			double r = d / half;
+			double sinc = Math.sin(Math.PI * d / 2) / (Math.PI * d);
+			result[i] = sinc * bessel0(beta * Math.sqrt(1 - r * r)) / bessel0(beta);
+		}
+		// normalize DC: 0.5 + 2 * sum = 1
+		double sum = 0;
+		for (double h : result)
+			sum += h;
+		for (int i = 0; i < taps; i++)
+			result[i] *= 0.25 / sum;
+		return result;
+	}
+
+	private static double bessel0(double x) {
+		double sum = 1, term = 1, q = x * x / 4;
+		for (int k = 1; term > 1e-12 * sum; k++) {
+			term *= q / (k * k);
+			sum += term;
+		}
+		return sum;
+	}
+
+	/** Linear-phase stage. y[2m] = 2 * sum h_odd * x (T taps each side, folded), y[2m+1] = x[m - T + 1]. */
+	private static final class FIR implements HalfBand {
+		private final int taps;
+		private final int history; // 2 * taps - 1 low-rate samples
+		private final float[] fold; // symmetric tap weights, farthest first
+		private final float[] x; // up: history + input
+		private final float[] even, odd; // down: deinterleaved history + input
+		private final float[] acc;
+
+		FIR(double[] h, int maxIn) {
+			taps = h.length;
+			history = 2 * taps - 1;
+			fold = new float[taps];
+			for (int i = 0; i < taps; i++)
+				fold[i] = (float) h[taps - 1 - i];
+			x = new float[history + maxIn];
+			even = new float[history + maxIn];
+			odd = new float[history + maxIn];
+			acc = new float[maxIn];
+		}
+
+		/** sum over k of fold[k] * (src[m + k] + src[m + history - k]) into acc, for m in 0..n-1 */
+		private void convolve(float[] src, int n) {
+			Arrays.fill(acc, 0, n, 0f);
+			for (int k = 0; k < taps; k++) {
+				final float w = fold[k];
+				final int a = k, b = history - k;
+				for (int m = 0; m < n; m++)
+					acc[m] += w * (src[a + m] + src[b + m]);
+			}
+		}
+
+		@Override public void up(float[] in, int n, float[] out) {
+			System.arraycopy(in, 0, x, history, n);
+			convolve(x, n);
+			final int mid = taps; // x[m - T + 1] sits at history + m - taps + 1 = m + taps
+			for (int m = 0; m < n; m++) {
+				out[2 * m] = 2f * acc[m];
+				out[2 * m + 1] = x[mid + m];
+			}
+			System.arraycopy(x, n, x, 0, history);
+		}
+
+		@Override public void down(float[] in, int n, float[] out) {
+			for (int m = 0; m < n; m++) {
+				even[history + m] = in[2 * m];
+				odd[history + m] = in[2 * m + 1];
+			}
+			convolve(even, n);
+			final int mid = history - taps; // odd[m - T]
+			for (int m = 0; m < n; m++)
+				out[m] = acc[m] + 0.5f * odd[mid + m];
+			System.arraycopy(even, n, even, 0, history);
+			System.arraycopy(odd, n, odd, 0, history);
+		}
+
+		@Override public void reset() {
+			Arrays.fill(x, 0f);
+			Arrays.fill(even, 0f);
+			Arrays.fill(odd, 0f);
+		}
+	}
+
+	/** Minimum-phase stage: H(z) = (A0(z^2) + z^-1 A1(z^2)) / 2, each path a chain of (a + z^-1)/(1 + a z^-1) at the low rate. */
+	private static final class IIR implements HalfBand {
+		private final float[] coef;
+		private final float[] upX, upY; // allpass input/output history, interpolator
+		private final float[] downX, downY; // decimator
+
+		IIR(double[] coefs) {
+			coef = new float[coefs.length];
+			for (int i = 0; i < coefs.length; i++)
+				coef[i] = (float) coefs[i];
+			upX = new float[coefs.length];
+			upY = new float[coefs.length];
+			downX = new float[coefs.length];
+			downY = new float[coefs.length];
+		}
+
+		@Override public void up(float[] in, int n, float[] out) {
+			final float[] c = coef, xs = upX, ys = upY;
+			final int len = c.length;
+			for (int m = 0; m < n; m++) {
+				float a = in[m], b = a;
+				int k = 0;
+				for (; k + 1 < len; k += 2) {
+					float ta = (a - ys[k]) * c[k] + xs[k];
+					float tb = (b - ys[k + 1]) * c[k + 1] + xs[k + 1];
+					xs[k] = a; ys[k] = ta; a = ta;
+					xs[k + 1] = b; ys[k + 1] = tb; b = tb;
+				}
+				if (k < len) {
+					float ta = (a - ys[k]) * c[k] + xs[k];
+					xs[k] = a; ys[k] = ta; a = ta;
+				}
+				out[2 * m] = a;
+				out[2 * m + 1] = b;
+			}
+		}
+
+		@Override public void down(float[] in, int n, float[] out) {
+			final float[] c = coef, xs = downX, ys = downY;
+			final int len = c.length;
+			for (int m = 0; m < n; m++) {
+				float a = in[2 * m + 1], b = in[2 * m];
+				int k = 0;
+				for (; k + 1 < len; k += 2) {
+					float ta = (a - ys[k]) * c[k] + xs[k];
+					float tb = (b - ys[k + 1]) * c[k + 1] + xs[k + 1];
+					xs[k] = a; ys[k] = ta; a = ta;
+					xs[k + 1] = b; ys[k + 1] = tb; b = tb;
+				}
+				if (k < len) {
+					float ta = (a - ys[k]) * c[k] + xs[k];
+					xs[k] = a; ys[k] = ta; a = ta;
+				}
+				out[m] = 0.5f * (a + b);
+			}
+		}
+
+		@Override public void reset() {
+			Arrays.fill(upX, 0f);
+			Arrays.fill(upY, 0f);
+			Arrays.fill(downX, 0f);
+			Arrays.fill(downY, 0f);
+		}
+	}
+
+	/** Elliptic half-band allpass coefficients (Valenzuela/Constantinides), sorted ascending; even indices
+	 *  feed path 0, odd indices path 1. transition: passband edge to fs/4, normalized to the high rate, in (0, 0.5). */
+	static double[] allpassCoefs(int count, double transition) {
+		double k = Math.tan((1 - transition * 2) * Math.PI / 4);
+		k *= k;
+		double kk = Math.pow(1 - k * k, 0.25);
+		double e = 0.5 * (1 - kk) / (1 + kk);
+		double e4 = e * e * e * e;
+		double q = e * (1 + e4 * (2 + e4 * (15 + 150 * e4)));
+		int order = count * 2 + 1;
+		double[] result = new double[count];
+		for (int i = 0; i < count; i++) {
+			int c = i + 1;
+			double num = 0, den = 0, term;
+			int j = 0;
+			do {
+				term = Math.pow(q, j * (j + 1)) * Math.sin((2 * j + 1) * c * Math.PI / order) * ((j & 1) == 0 ? 1 : -1);
+				num += term;
+				j++;
+			} while (Math.abs(term) > 1e-100);
+			j = 1;
+			do {
+				term = Math.pow(q, j * j) * Math.cos(2 * j * c * Math.PI / order) * ((j & 1) == 0 ? 1 : -1);
+				den += term;
+				j++;
+			} while (Math.abs(term) > 1e-100);
+			double w = num * Math.pow(q, 0.25) / (den + 0.5);
+			double w2 = w * w;
+			double x = Math.sqrt((1 - w2 * k) * (1 - w2 / k)) / (1 + w2);
+			result[i] = (1 - x) / (1 + x);
+		}
+		return result;
+	}
+
+	/** per factor and mode cost of up, a cubic soft clip and down, per base-rate block */
+	public static void benchmark(int bufSize, int blocks) {
+		final float[] buf = new float[bufSize];
+		final Stage drive = (hi, len) -> {
+			for (int i = 0; i < len; i++) {
+				float x = Math.max(-1f, Math.min(1f, 2f * hi[i]));
+				hi[i] = 1.5f * x - 0.5f * x * x * x;
+			}
+		};
+		System.out.println("Oversampled soft clip, bufSize " + bufSize + ", " + blocks + " blocks per run");
+		System.out.printf("%-8s %6s %12s %10s%n", "mode", "factor", "ns/block", "latency");
+		for (Mode mode : Mode.values()) {
+			for (int factor = 1; factor <= 8; factor <<= 1) {
+				Oversampler os = new Oversampler(factor, mode, bufSize);
+				SineSource.fill(SineSource.Backend.EXACT, buf, 0, bufSize, 1000, Constants.sampleRate(), 0.8, 0);
+				float check = 0;
+				for (int i = 0; i < blocks; i++) // warmup
+					os.process(buf, bufSize, drive);
+				long start = System.nanoTime();
+				for (int i = 0; i < blocks; i++) {
+					os.process(buf, bufSize, drive);
+					check += buf[1];
+				}
+				double ns = (System.nanoTime() - start) / (double) blocks;
+				if (check != check)
+					System.err.println("NaN produced");
+				System.out.printf("%-8s %6d %12.0f %10.2f%n", mode, factor, ns, os.latency());
+			}
+		}
+	}
+
+	public static void main(String[] args) {
+		benchmark(Constants.bufSize(), 20_000);
+	}
+
+}
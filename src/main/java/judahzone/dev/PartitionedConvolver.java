@@ -0,0 +1,302 @@
+package judahzone.dev;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.LockSupport;
+
+import be.tarsos.dsp.util.fft.FFT;
+import judahzone.util.Constants;
+
+/** Zero-latency impulse response convolution for long (3-5 second) reverbs, split into two uniformly
+ *  partitioned overlap-save engines:
+ *  <p>head: the first 2 * L samples of the IR at the audio block size B, run on the audio thread, output in the
+ *  same call (no latency beyond the block itself).
+ *  <p>tail: the rest of the IR in partitions of L = B * tailFactor, run on a background worker. Input collects
+ *  into L sample blocks; each full block is handed off and its output is not needed until L samples later,
+ *  because the head already covers the first 2L of the response. A worker that misses that deadline drops the
+ *  tail output for that block, counted by {@link #getLate()}; its input is untouched, so the tail is exact again
+ *  once the worker catches up. Three input slots let it fall two jobs behind; a worker further behind than that
+ *  loses the next large block's input instead (convolved as silence, so that block contributes no tail), counted by
+ *  {@link #getDropped()}, rather than having its input overwritten while it reads.
+ *  <p>Spectra use the Tarsos (JTransforms) packed real layout: [Re 0, Re N/2, Re 1, Im 1, ...]. */
+public final class PartitionedConvolver implements AutoCloseable {
+
+	public static final int DEFAULT_TAIL_FACTOR = 8;
+
+	/** Uniformly partitioned overlap-save: FFT size 2B, one spectrum per B samples of IR, and a frequency-domain
+	 *  delay line holding the spectra of the last P input frames, so each block costs one forward FFT,
+	 *  P complex multiply-accumulates and one inverse FFT. */
+	public static final class Uniform {
+		private final int block;
+		private final int size;
+		private final int partitions;
+		private final FFT fft;
+		private final float[][] ir; // partition spectra
+		private final float[][] fdl; // input spectra, ring
+		private final float[] frame; // previous block + current block
+		private final float[] acc;
+		private int head; // fdl slot of the newest spectrum
+
+		/** @param ir impulse response; this engine convolves with ir[offset .. offset + length) */
+		public Uniform(float[] ir, int offset, int length, int block) {
+			if (Integer.bitCount(block) != 1)
+				throw new IllegalArgumentException("block " + block);
+			this.block = block;
+			size = block * 2;
+			partitions = Math.max(1, (length + block - 1) / block);
+			fft = new FFT(size);
+			this.ir = new float[partitions][size];
+			for (int p = 0; p < partitions; p++) {
+				int start = offset + p * block;
+				int len = Math.max(0, Math.min(block, offset + length - start));
+				System.arraycopy(ir, start, this.ir[p], 0, len);
+				fft.forwardTransform(this.ir[p]);
+			}
+			fdl = new float[partitions][size];
+			frame = new float[size];
+			acc = new float[size];
+		}
+
+		public int getBlock() { return block; }
+		public int getPartitions() { return partitions; }
+
+		/** convolve one block of in into out (replaced) */
+		public void process(float[] in, int inOff, float[] out, int outOff) {
+			System.arraycopy(frame, block, frame, 0, block);
+			System.arraycopy(in, inOff, frame, block, block);
+			head = head == 0 ? partitions - 1 : head - 1;
+			final float[] spectrum = fdl[head];
+			System.arraycopy(frame, 0, spectrum, 0, size);
+			fft.forwardTransform(spectrum);
+
+			Arrays.fill(acc, 0f);
+			for (int p = 0, slot = head; p < partitions; p++) {
+				multiplyAdd(fdl[slot], ir[p], acc, size);
+				if (++slot == partitions)
+					slot = 0;
+			}
+			fft.backwardsTransform(acc);
+			System.arraycopy(acc, block, out, outOff, block);
+		}
+
+		public void reset() {
+			for (float[] s : fdl)
+				Arrays.fill(s, 0f);
+			Arrays.fill(frame, 0f);
+			head = 0;
+		}
+	}
+
+	/** acc += x * h, packed real spectra of length n */
+	static void multiplyAdd(float[] x, float[] h, float[] acc, int n) {
+		acc[0] += x[0] * h[0];
+		acc[1] += x[1] * h[1];
+		for (int k = 2; k < n; k += 2) {
+			final float xr = x[k], xi = x[k + 1], hr = h[k], hi = h[k + 1];
+			acc[k] += xr * hr - xi * hi;
+			acc[k + 1] += xr * hi + xi * hr;
+		}
+	}
+
+	private final int block;
+	private final int large;
+	private final Uniform head;
+	private final Uniform tail; // null if the IR fits in the head
+	private final float[] wet;
+	private static final int SLOTS = 3; // filling, submitted, and one late job
+	private final float[][] tailIn;
+	private final float[][] tailOut;
+	private final long[] silent; // per slot: the job whose input was dropped
+	private final float[] silence;
+	private final Thread worker; // null: tail runs inline on the calling thread
+	private volatile long submitted = -1;
+	private volatile long completed = -1;
+	private volatile boolean running = true;
+	private long current; // large block being filled
+	private int fill;
+	private boolean taking; // the current large block's input slot was free when it started
+	private long late;
+	private long dropped;
+
+	/** @param block audio block size (power of 2)
+	 *  @param tailFactor tail partition size in blocks (power of 2)
+	 *  @param threaded run the tail on a background thread, else inline (offline rendering, tests) */
+	public PartitionedConvolver(float[] ir, int block, int tailFactor, boolean threaded) {
+		this(ir, block, tailFactor, threaded ? Thread::new : null);
+	}
+
+	/** @param workers makes the tail's background thread, null to run the tail inline */
+	public PartitionedConvolver(float[] ir, int block, int tailFactor, ThreadFactory workers) {
+		if (Integer.bitCount(tailFactor) != 1)
+			throw new IllegalArgumentException("tailFactor " + tailFactor);
+		this.block = block;
+		large = block * tailFactor;
+		final int headLength = Math.min(ir.length, 2 * large);
+		head = new Uniform(ir, 0, headLength, block);
+		wet = new float[block];
+		if (ir.length > headLength) {
+			tail = new Uniform(ir, headLength, ir.length - headLength, large);
+			tailIn = new float[SLOTS][large];
+			tailOut = new float[SLOTS][large];
+			silent = new long[SLOTS];
+			Arrays.fill(silent, -1);
+			silence = new float[large];
+		} else {
+			tail = null;
+			tailIn = tailOut = null;
+			silent = null;
+			silence = null;
+		}
+		if (workers != null && tail != null) {
+			worker = workers.newThread(this::work);
+			worker.setName("convolver-tail");
+			worker.setDaemon(true);
+			worker.setPriority(Thread.MAX_PRIORITY - 1);
+			worker.start();
+		} else
+			worker = null;
+	}
+
+	public PartitionedConvolver(float[] ir) {
+		this(ir, Constants.bufSize(), DEFAULT_TAIL_FACTOR, true);
+	}
+
+	public int getBlock() { return block; }
+	/** tail blocks that were not ready in time */
+	public long getLate() { return late; }
+	/** large input blocks left out of the tail because the worker was more than two jobs behind */
+	public long getDropped() { return dropped; }
+	public boolean hasTail() { return tail != null; }
+
+	/** true if the tail output the next {@link #process} call reads has been computed */
+	public boolean tailReady() {
+		return tail == null || current < 2 || completed >= current - 2;
+	}
+
+	/** convolve one block of in into out (replaced); in and out may be the same array */
+	public void process(float[] in, float[] out) {
+		head.process(in, 0, wet, 0);
+		if (tail != null) {
+			final int slot = (int) (current % SLOTS);
+			if (fill == 0) // job current - 3 used this slot last
+				taking = completed >= current - SLOTS;
+			if (taking)
+				System.arraycopy(in, 0, tailIn[slot], fill, block);
+			if (current >= 2) { // this part of the response started 2L ago
+				if (completed >= current - 2) {
+					final float[] z = tailOut[(int) ((current - 2) % SLOTS)];
+					for (int i = 0; i < block; i++)
+						wet[i] += z[fill + i];
+				} else
+					late++;
+			}
+			fill += block;
+			if (fill == large) {
+				fill = 0;
+				if (!taking) {
+					silent[slot] = current;
+					dropped++;
+				}
+				submitted = current; // publishes silent[slot]
+				if (worker == null)
+					runTail(current);
+				else
+					LockSupport.unpark(worker);
+				current++;
+			}
+		}
+		System.arraycopy(wet, 0, out, 0, block);
+	}
+
+	private void runTail(long job) {
+		final int slot = (int) (job % SLOTS);
+		tail.process(silent[slot] == job ? silence : tailIn[slot], 0, tailOut[slot], 0);
+		completed = job;
+	}
+
+	private void work() {
+		while (running) {
+			final long next = completed + 1; // in order, even when behind
+			if (next <= submitted)
+				runTail(next);
+			else
+				LockSupport.park(this);
+		}
+	}
+
+	/** only while not processing */
+	public void reset() {
+		head.reset();
+		if (tail != null) {
+			while (worker != null && submitted > completed)
+				Thread.onSpinWait();
+			tail.reset();
+			for (float[] z : tailOut)
+				Arrays.fill(z, 0f);
+			Arrays.fill(silent, -1);
+			submitted = completed = -1;
+		}
+		current = 0;
+		fill = 0;
+		late = dropped = 0;
+	}
+
+	@Override
+	public void close() {
+		running = false;
+		if (worker != null)
+			LockSupport.unpark(worker);
+	}
+
+	/** exponentially decaying noise, a stand-in room */
+	static float[] room(float seconds, float sampleRate, long seed) {
+		Random rnd = new Random(seed);
+		float[] result = new float[(int) (seconds * sampleRate)];
+		final double decay = Math.log(1000) / result.length; // -60 dB at the end
+		for (int i = 0; i < result.length; i++)
+			result[i] = (float) ((rnd.nextFloat() * 2 - 1) * Math.exp(-decay * i) * 0.1);
+		return result;
+	}
+
+	/** audio-thread cost per block against the block's real-time budget, for 3 and 5 second IRs */
+	public static void benchmark(int bufSize, int blocks) {
+		final float sr = Constants.sampleRate();
+		final double budget = bufSize * 1e9 / sr;
+		final float[] in = new float[bufSize], out = new float[bufSize];
+		System.out.println("Partitioned convolution, bufSize " + bufSize + ", " + blocks + " blocks per run, budget "
+				+ String.format("%.0f", budget) + " ns/block");
+		System.out.printf("%-8s %-6s %12s %10s %8s%n", "IR sec", "tail", "ns/block", "% budget", "late");
+		for (float seconds : new float[] {3f, 5f}) {
+			float[] ir = room(seconds, sr, 1);
+			for (int factor : new int[] {4, 8, 16}) {
+				try (PartitionedConvolver conv = new PartitionedConvolver(ir, bufSize, factor, true)) {
+					Random rnd = new Random(2);
+					for (int i = 0; i < blocks; i++) { // warmup
+						in[i % bufSize] = rnd.nextFloat() - 0.5f;
+						conv.process(in, out);
+					}
+					conv.reset();
+					long busy = 0;
+					final long start = System.nanoTime();
+					for (int i = 0; i < blocks; i++) {
+						in[i % bufSize] = rnd.nextFloat() - 0.5f;
+						long t = System.nanoTime();
+						conv.process(in, out);
+						busy += System.nanoTime() - t;
+						// pace like a real audio callback so the worker gets its share of the CPU
+						LockSupport.parkNanos(start + (long) ((i + 1) * budget) - System.nanoTime());
+					}
+					double ns = busy / (double) blocks;
+					System.out.printf("%-8.0f %-6d %12.0f %9.1f%% %8d%n", seconds, factor,
+							ns, 100 * ns / budget, conv.getLate());
+				}
+			}
+		}
+	}
+
+	public static void main(String[] args) {
+		benchmark(Constants.bufSize(), 2000);
+	}
+
+}
@@ -0,0 +1,171 @@
+package judahzone.dev;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import judahzone.data.Postage;
+import judahzone.dev.KitDB.KitSetup;
+import judahzone.dev.KitDB.NoiseSetup;
+import judahzone.dev.KitDB.OscSetup;
+import judahzone.dev.KitDB.PluckSetup.Pluck;
+import judahzone.filter.Coord;
+import judahzone.filter.FilterT;
+import judahzone.fx.Gain;
+import judahzone.util.Constants;
+import net.judah.drums.Drum;
+
+/** Kit audition cache: renders a voice's static-parameter hit to a one-shot sample once and plays it back
+ *  on later triggers, so dense patterns cost a mix instead of a synthesis.
+ *  <p>Rendering and lookups are synchronized and belong on a worker thread (see KitPreloader);
+ *  the audio thread only touches {@link Player}. Bounded by total cached frames, least recently used evicted first. */
+public final class RenderCache {
+
+	/** ~10 seconds of stereo audio at 48k */
+	public static final int DEFAULT_BUDGET = 480_000;
+	/** cap on a single render, a drum that never stops sounding gets truncated */
+	public static final int MAX_FRAMES = Constants.sampleRate() * 4;
+
+	public static record OneShot(float[] left, float[] right) {
+		public int frames() { return left.length; }
+	}
+
+	private final int budget;
+	private int cached;
+	/** Everything that shapes one voice's rendered hit, compared field by field. */
+	public static record Key(int voice, Gain.GainT gain, Postage env, Coord lowCut, FilterT body, Coord hiCut,
+			OscSetup pitch, Object synth, Object fm, Pluck pluck) { }
+
+	private final LinkedHashMap<Key, OneShot> lru = new LinkedHashMap<>(16, 0.75f, true);
+
+	public RenderCache() { this(DEFAULT_BUDGET); }
+
+	/** @param budget maximum total frames held by the cache */
+	public RenderCache(int budget) {
+		this.budget = Math.max(1, budget);
+	}
+
+	/** cache key of one voice of a kit */
+	public static Key key(KitSetup kit, int voice) {
+		Object synth = null;
+		NoiseSetup n = kit.synth();
+		if (n != null)
+			synth = switch (voice) {
+				case 0 -> n.kick();  case 1 -> n.snare(); case 2 -> n.stick(); case 3 -> n.clap();
+				case 4 -> n.chat();  case 5 -> n.ohat();  case 6 -> n.ride();  case 7 -> n.bongo();
+				default -> null;
+			};
+		Pluck pluck = kit.pluck() == null ? null : kit.pluck().plucks()[voice];
+		return new Key(voice, kit.gains()[voice], kit.env()[voice], kit.lowCut()[voice], kit.body()[voice],
+				kit.hiCut()[voice], kit.pitch()[voice], synth, kit.fm(), pluck);
+	}
+
+	/** @param build on a miss, makes a fresh drum configured from the key, which is then rendered
+	 *  @return cached one-shot for key */
+	public synchronized OneShot get(Key key, Function<? super Key, ? extends Drum> build) {
+		OneShot result = lru.get(key);
+		if (result == null) {
+			result = render(build.apply(key));
+			put(key, result);
+		}
+		return result;
+	}
+
+	public synchronized OneShot get(Key key) {
+		return lru.get(key);
+	}
+
+	public synchronized void put(Key key, OneShot shot) {
+		OneShot old = lru.put(key, shot);
+		if (old != null)
+			cached -= old.frames();
+		cached += shot.frames();
+		Iterator<Map.Entry<Key, OneShot>> it = lru.entrySet().iterator();
+		while (cached > budget && it.hasNext()) {
+			Map.Entry<Key, OneShot> eldest = it.next();
+			if (eldest.getValue() == shot)
+				continue; // always keep the newest, even if over budget by itself
+			cached -= eldest.getValue().frames();
+			it.remove();
+		}
+	}
+
+	public synchronized void clear() {
+		lru.clear();
+		cached = 0;
+	}
+
+	public synchronized int size() { return lru.size(); }
+
+	/** @return total frames currently cached */
+	public synchronized int frames() { return cached; }
+
+	/** Trigger the drum and capture its whole life cycle (not real-time safe). */
+	public static OneShot render(Drum drum) {
+		final int bufSize = Constants.bufSize();
+		float[] left = new float[bufSize * 16];
+		float[] right = new float[left.length];
+		float[] workL = new float[bufSize];
+		float[] workR = new float[bufSize];
+		int frames = 0;
+
+		drum.trigger(null);
+		do {
+			Arrays.fill(workL, 0f);
+			Arrays.fill(workR, 0f);
+			drum.process(workL, workR);
+			if (frames + bufSize > left.length) {
+				left = Arrays.copyOf(left, left.length * 2);
+				right = Arrays.copyOf(right, right.length * 2);
+			}
+			System.arraycopy(workL, 0, left, frames, bufSize);
+			System.arraycopy(workR, 0, right, frames, bufSize);
+			frames += bufSize;
+		} while (drum.isSounding() && frames < MAX_FRAMES);
+
+		// trim trailing silence
+		while (frames > 0 && left[frames - 1] == 0f && right[frames - 1] == 0f)
+			frames--;
+		return new OneShot(Arrays.copyOf(left, frames), Arrays.copyOf(right, frames));
+	}
+
+	/** Real-time playback of a cached one-shot, mixes into the supplied buffers. A retrigger restarts the sample.
+	 *  trigger() may come from another thread than process(). */
+	public static final class Player {
+		private volatile OneShot shot;
+		private volatile int pos;
+
+		/** @param shot sample to play, null to stop */
+		public void trigger(OneShot shot) {
+			pos = 0; // before the shot: process() seeing the new shot sees it from the start
+			this.shot = shot;
+		}
+
+		public boolean isSounding() {
+			OneShot s = shot;
+			return s != null && pos < s.frames();
+		}
+
+		public void process(float[] sumL, float[] sumR) {
+			final OneShot s = shot;
+			if (s == null)
+				return;
+			final int at = pos;
+			final int n = Math.min(sumL.length, s.frames() - at);
+			if (n <= 0) {
+				shot = null;
+				return;
+			}
+			final float[] l = s.left();
+			final float[] r = s.right();
+			for (int i = 0; i < n; i++) {
+				sumL[i] += l[at + i];
+				sumR[i] += r[at + i];
+			}
+			pos = at + n;
+		}
+	}
+
+}
@@ -0,0 +1,221 @@
+package judahzone.dev;
+
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import be.tarsos.dsp.util.fft.HannWindow;
+import be.tarsos.dsp.util.fft.WindowFunction;
+import judahzone.util.Constants;
+
+/** Streaming short-time Fourier transform: audio goes in at whatever block size the caller has (bufSize),
+ *  and every hop samples the last size samples are windowed and transformed once, for every consumer.
+ *  <p>Input sits in a mirrored ring (each sample written at i and i + size), so the newest frame is always
+ *  one contiguous run and goes through {@link FFTPlans.Plan#forwardTransform(float[], int, float[])} with no
+ *  unwrapping copy.
+ *  <p>Spectra (Tarsos packed layout) are published into a ring of slots, each stamped like a seqlock:
+ *  odd while being written, 2 * frame + 2 once complete. Any number of {@link Reader}s (spectrometer, CQT,
+ *  tuner) copy frames out without locks or allocation; a reader that falls more than the ring's capacity
+ *  behind skips to the oldest frame still held and counts what it missed. One producer thread. */
+public final class STFT {
+
+	public static final int DEFAULT_CAPACITY = 8;
+
+	private final FFTPlans.Plan plan;
+	private final int size;
+	private final int hop;
+	private final float[] input;
+	private final float[][] frames;
+	private final AtomicLongArray stamps;
+	private final AtomicLong published = new AtomicLong(-1); // newest complete frame
+	private final int mask;
+	private int write; // next input index, 0 .. size
+	private int pending; // samples since the last frame
+	private long samples;
+
+	/** A consumer's cursor, one per consuming thread. */
+	public final class Reader {
+		private long next;
+		private long dropped;
+
+		private Reader() {
+			next = published.get() + 1;
+		}
+
+		/** copy the next unread frame into spectrum (size floats)
+		 *  @return its frame number, or -1 if none is ready */
+		public long poll(float[] spectrum) {
+			while (true) {
+				final long newest = published.get();
+				if (next > newest)
+					return -1;
+				if (newest - next >= frames.length) { // lapped
+					final long oldest = newest - frames.length + 1;
+					dropped += oldest - next;
+					next = oldest;
+				}
+				if (read(next, spectrum))
+					return next++;
+				dropped++; // overwritten while copying
+				next++;
+			}
+		}
+
+		/** copy the newest frame into spectrum, skipping (not dropping) any older unread ones
+		 *  @return its frame number, or -1 if nothing new */
+		public long latest(float[] spectrum) {
+			while (true) {
+				final long newest = published.get();
+				if (newest < next)
+					return -1;
+				if (read(newest, spectrum)) {
+					next = newest + 1;
+					return newest;
+				}
+			}
+		}
+
+		/** frames overwritten before this reader got to them */
+		public long getDropped() { return dropped; }
+		/** published frames not yet read */
+		public long available() { return Math.max(0, published.get() + 1 - next); }
+	}
+
+	/** @param size FFT (and window) length
+	 *  @param hop samples between frames, 1 .. size (size / 4: 75% overlap)
+	 *  @param window Tarsos window type, or null for none
+	 *  @param capacity published frames held, rounded up to a power of two (at least 2) */
+	public STFT(int size, int hop, Class<? extends WindowFunction> window, int capacity) {
+		if (hop < 1 || hop > size)
+			throw new IllegalArgumentException("hop " + hop + " of " + size);
+		plan = FFTPlans.get(size, window);
+		this.size = size;
+		this.hop = hop;
+		input = new float[size * 2];
+		final int slots = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+		frames = new float[slots][size];
+		stamps = new AtomicLongArray(slots);
+		mask = slots - 1;
+	}
+
+	/** Hann window, @param overlap 0 (none) to 0.75 or more */
+	public STFT(int size, float overlap) {
+		this(size, Math.max(1, Math.round(size * (1 - overlap))), HannWindow.class, DEFAULT_CAPACITY);
+	}
+
+	public int getSize() { return size; }
+	public int getHop() { return hop; }
+	public FFTPlans.Plan getPlan() { return plan; }
+	/** published frames held before a slow reader is lapped */
+	public int getCapacity() { return frames.length; }
+	/** frames published so far */
+	public long getFrames() { return published.get() + 1; }
+
+	/** a new consumer, starting with the next frame published */
+	public Reader reader() {
+		return new Reader();
+	}
+
+	/** producer: feed len samples, transforming a frame at every hop once size samples have arrived
+	 *  @return frames published */
+	public int process(float[] in, int offset, int len) {
+		int result = 0;
+		for (int i = 0; i < len; ) {
+			final int n = Math.min(len - i, Math.min(hop - pending, size - write));
+			System.arraycopy(in, offset + i, input, write, n);
+			System.arraycopy(in, offset + i, input, write + size, n);
+			write += n;
+			if (write == size)
+				write = 0;
+			pending += n;
+			samples += n;
+			i += n;
+			if (pending == hop) {
+				pending = 0;
+				if (samples >= size) {
+					publish();
+					result++;
+				}
+			}
+		}
+		return result;
+	}
+
+	public int process(float[] in) {
+		return process(in, 0, in.length);
+	}
+
+	private void publish() {
+		final long frame = published.get() + 1;
+		final int slot = (int) frame & mask;
+		stamps.set(slot, 2 * frame + 1);
+		VarHandle.storeStoreFence(); // odd stamp before any data
+		plan.forwardTransform(input, write, frames[slot]); // oldest sample sits at write
+		stamps.lazySet(slot, 2 * frame + 2);
+		published.lazySet(frame);
+	}
+
+	private boolean read(long frame, float[] spectrum) {
+		final int slot = (int) frame & mask;
+		final long stamp = 2 * frame + 2;
+		if (stamps.get(slot) != stamp)
+			return false;
+		System.arraycopy(frames[slot], 0, spectrum, 0, size);
+		VarHandle.loadLoadFence(); // data before the second stamp
+		return stamps.get(slot) == stamp;
+	}
+
+	/** producer side: forget buffered input (frame numbers carry on) */
+	public void reset() {
+		Arrays.fill(input, 0f);
+		write = pending = 0;
+		samples = 0;
+	}
+
+	/** three consumers: each running its own FFT per block against one shared STFT per hop */
+	public static void benchmark(int bufSize, int blocks) {
+		final int size = 4096, consumers = 3;
+		final float sr = Constants.sampleRate();
+		final double budget = bufSize * 1e9 / sr;
+		final float[] block = new float[bufSize], spectrum = new float[size];
+		final float[] history = new float[size];
+		SineSource.fill(SineSource.Backend.EXACT, history, 0, size, 440, sr, 0.5, 0);
+		System.out.println("STFT, size " + size + ", " + consumers + " consumers, bufSize " + bufSize + ", "
+				+ blocks + " blocks per run, budget " + String.format("%.0f", budget) + " ns/block");
+		System.out.printf("%-28s %12s %10s%n", "path", "ns/block", "% budget");
+		final FFTPlans.Plan own = FFTPlans.get(size, HannWindow.class);
+		final float[] overlaps = {0f, 0.5f, 0.75f};
+		final double[] ns = new double[overlaps.length + 1];
+		for (int run = 0; run < 2; run++) { // first run is warmup
+			long start = System.nanoTime();
+			for (int i = 0; i < blocks; i++) // each consumer windows and transforms every block
+				for (int c = 0; c < consumers; c++)
+					own.forwardTransform(history, 0, spectrum);
+			ns[0] = (System.nanoTime() - start) / (double) blocks;
+			for (int o = 0; o < overlaps.length; o++) {
+				final STFT stft = new STFT(size, overlaps[o]);
+				final Reader[] readers = new Reader[consumers];
+				for (int c = 0; c < consumers; c++)
+					readers[c] = stft.reader();
+				start = System.nanoTime();
+				for (int i = 0; i < blocks; i++) {
+					System.arraycopy(history, (i * bufSize) % (size - bufSize), block, 0, bufSize);
+					stft.process(block);
+					for (Reader r : readers)
+						while (r.poll(spectrum) >= 0) { }
+				}
+				ns[o + 1] = (System.nanoTime() - start) / (double) blocks;
+			}
+		}
+		System.out.printf("%-28s %12.0f %9.1f%%%n", "own FFT per consumer", ns[0], 100 * ns[0] / budget);
+		for (int o = 0; o < overlaps.length; o++)
+			System.out.printf("%-28s %12.0f %9.1f%%%n", "shared STFT, " + Math.round(overlaps[o] * 100) + "% overlap",
+					ns[o + 1], 100 * ns[o + 1] / budget);
+	}
+
+	public static void main(String[] args) {
+		benchmark(Constants.bufSize(), 20_000);
+	}
+
+}
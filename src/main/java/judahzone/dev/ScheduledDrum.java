@@ -0,0 +1,116 @@
+package judahzone.dev;
+
+import java.util.Arrays;
+
+import net.judah.drums.Drum;
+
+/** Sample-accurate triggering of a Drum: triggers land at their offset inside the audio block
+ *  instead of at the start of the next one.
+ *  <p>The voice runs on its own timeline, lagging the output by the offset of its last trigger.
+ *  Each block the voice is rendered once into scratch and mixed in shifted by that lag; the tail that
+ *  spills past the block is carried into the next one. A trigger cuts the previous hit at its offset.
+ *  <p>Parameter changes (FUNDAMENTAL) apply at the start of the block they arrive in.
+ *  <p>trigger()/setFundamental() from the MIDI thread, process() from the audio thread. */
+public final class ScheduledDrum {
+
+	private final Drum drum;
+	private final EventQueue queue;
+	private final int bufSize;
+
+	private final float[] scratchL, scratchR;
+	private final float[] carryL, carryR;
+	private int lag;          // output sample where the voice's current block starts
+	private boolean carrying; // carry holds audio for the next block
+	private boolean rendered; // scratch holds this block of the current timeline
+
+	public ScheduledDrum(Drum drum, int bufSize, int capacity) {
+		this.drum = drum;
+		this.bufSize = bufSize;
+		queue = new EventQueue(capacity);
+		scratchL = new float[bufSize];
+		scratchR = new float[bufSize];
+		carryL = new float[bufSize];
+		carryR = new float[bufSize];
+	}
+
+	public ScheduledDrum(Drum drum, int bufSize) {
+		this(drum, bufSize, 64);
+	}
+
+	public Drum getDrum() { return drum; }
+
+	/** @param offset sample position inside the next process() block
+	 *  @return false if the queue is full */
+	public boolean trigger(int offset) {
+		return queue.offer(EventQueue.TRIGGER, offset, 0f);
+	}
+
+	public boolean setFundamental(int offset, float hz) {
+		return queue.offer(EventQueue.FUNDAMENTAL, offset, hz);
+	}
+
+	public boolean isSounding() {
+		return carrying || drum.isSounding() || !queue.isEmpty();
+	}
+
+	/** mix one block into sumL/sumR, events in offset order */
+	public void process(float[] sumL, float[] sumR) {
+		rendered = false;
+		int pos = 0;
+		long event;
+		while ((event = queue.poll()) != EventQueue.EMPTY) {
+			switch (EventQueue.type(event)) {
+				case EventQueue.TRIGGER -> {
+					final int at = Math.max(pos, Math.min(bufSize - 1, EventQueue.offset(event)));
+					emit(sumL, sumR, pos, at);
+					drum.trigger(null);
+					lag = at;
+					carrying = false;
+					rendered = false;
+					pos = at;
+				}
+				case EventQueue.FUNDAMENTAL -> drum.setFundamental(EventQueue.data(event));
+				default -> { }
+			}
+		}
+		emit(sumL, sumR, pos, bufSize);
+
+		// what the current timeline spills into the next block
+		if (rendered && lag > 0) {
+			final int spill = bufSize - lag;
+			System.arraycopy(scratchL, spill, carryL, 0, lag);
+			System.arraycopy(scratchR, spill, carryR, 0, lag);
+			carrying = true;
+		} else
+			carrying = false;
+	}
+
+	/** add output samples [from, to) of the current timeline */
+	private void emit(float[] sumL, float[] sumR, int from, int to) {
+		if (from >= to)
+			return;
+		// head of the block comes from the previous block's render
+		final int carried = Math.min(to, lag);
+		if (carrying)
+			for (int i = from; i < carried; i++) {
+				sumL[i] += carryL[i];
+				sumR[i] += carryR[i];
+			}
+		final int start = Math.max(from, lag);
+		if (start >= to)
+			return;
+		if (!rendered) {
+			if (!drum.isSounding())
+				return;
+			Arrays.fill(scratchL, 0f);
+			Arrays.fill(scratchR, 0f);
+			drum.process(scratchL, scratchR);
+			rendered = true;
+		}
+		for (int i = start; i < to; i++) {
+			sumL[i] += scratchL[i - lag];
+			sumR[i] += scratchR[i - lag];
+		}
+	}
+
+}
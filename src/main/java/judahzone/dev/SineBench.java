@@ -0,0 +1,75 @@
+package judahzone.dev;
+
+import judahzone.util.Constants;
+
+/** Accuracy and throughput of each {@link SineKernel} against Math.sin:
+ *  <p>1. max and mean absolute error over a dense sweep of one cycle.
+ *  <p>2. nanoseconds per sample of the array-at-a-time path over bufSize blocks. */
+public class SineBench {
+
+	private static final int SWEEP = 1 << 20;
+	private static final int WARMUP_BLOCKS = 50_000;
+	private static final int BENCHMARK_BLOCKS = 200_000;
+
+	public static void main(String[] args) {
+		final int n = Constants.bufSize();
+		final float[] phases = new float[n];
+		final float[] out = new float[n];
+		for (int i = 0; i < n; i++)
+			phases[i] = i * 0.0123f;
+
+		System.out.println("Sine kernels, bufSize " + n + ", " + BENCHMARK_BLOCKS + " blocks per run");
+		System.out.printf("%-12s %12s %12s %10s%n", "kernel", "max err", "mean err", "ns/sample");
+		for (SineKernel kernel : SineKernel.values()) {
+			double max = 0, sum = 0;
+			for (int i = 0; i < SWEEP; i++) {
+				float phase = i / (float) SWEEP;
+				double err = Math.abs(kernel.sin(phase) - Math.sin(2 * Math.PI * phase));
+				max = Math.max(max, err);
+				sum += err;
+			}
+			double ns = run(kernel, phases, out);
+			System.out.printf("%-12s %12.3e %12.3e %10.3f%n", kernel, max, sum / SWEEP, ns / n);
+		}
+		double ns = reference(phases, out);
+		System.out.printf("%-12s %12s %12s %10.3f%n", "Math.sin", "-", "-", ns / n);
+	}
+
+	/** @return average nanoseconds per block */
+	private static double run(SineKernel kernel, float[] phases, float[] out) {
+		float check = 0;
+		for (int i = 0; i < WARMUP_BLOCKS; i++) {
+			kernel.sin(phases, out);
+			check += out[1];
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < BENCHMARK_BLOCKS; i++) {
+			kernel.sin(phases, out);
+			check += out[1];
+		}
+		long elapsed = System.nanoTime() - start;
+		if (check != check)
+			System.err.println("NaN produced");
+		return elapsed / (double) BENCHMARK_BLOCKS;
+	}
+
+	private static double reference(float[] phases, float[] out) {
+		float check = 0;
+		for (int b = 0; b < WARMUP_BLOCKS; b++) {
+			for (int i = 0; i < phases.length; i++)
+				out[i] = (float) Math.sin(2 * Math.PI * phases[i]);
+			check += out[1];
+		}
+		long start = System.nanoTime();
+		for (int b = 0; b < BENCHMARK_BLOCKS; b++) {
+			for (int i = 0; i < phases.length; i++)
+				out[i] = (float) Math.sin(2 * Math.PI * phases[i]);
+			check += out[1];
+		}
+		long elapsed = System.nanoTime() - start;
+		if (check != check)
+			System.err.println("NaN produced");
+		return elapsed / (double) BENCHMARK_BLOCKS;
+	}
+
+}
@@ -0,0 +1,92 @@
+package judahzone.dev;
+
+/** Selectable sine implementations, phase in cycles (1.0 == 2 pi), any finite value accepted.
+ *  <p>Every kernel has a scalar {@link #sin(float)} and an array-at-a-time
+ *  {@link #sin(float[], float[], int)} written as a flat loop the JIT can unroll and vectorize.
+ *  <p>LINEAR_LUT: what Phase.sin does, linear interpolation of a 1024 point table.
+ *  <p>HERMITE_LUT: same table, 4 point cubic Hermite interpolation.
+ *  <p>MINIMAX: no table, quarter-wave fold into a degree 9 odd polynomial (Remez fit, max error ~3e-9
+ *  before float rounding). Branch free. */
+public enum SineKernel {
+
+	LINEAR_LUT {
+		@Override public float sin(float phase) { return linear(phase); }
+		@Override public void sin(float[] phases, float[] out, int n) {
+			for (int i = 0; i < n; i++)
+				out[i] = linear(phases[i]);
+		}
+	},
+	HERMITE_LUT {
+		@Override public float sin(float phase) { return hermite(phase); }
+		@Override public void sin(float[] phases, float[] out, int n) {
+			for (int i = 0; i < n; i++)
+				out[i] = hermite(phases[i]);
+		}
+	},
+	MINIMAX {
+		@Override public float sin(float phase) { return minimax(phase); }
+		@Override public void sin(float[] phases, float[] out, int n) {
+			for (int i = 0; i < n; i++)
+				out[i] = minimax(phases[i]);
+		}
+	};
+
+	/** @param phase in cycles */
+	public abstract float sin(float phase);
+
+	/** out[i] = sin(phases[i]) for the first n entries */
+	public abstract void sin(float[] phases, float[] out, int n);
+
+	public void sin(float[] phases, float[] out) {
+		sin(phases, out, Math.min(phases.length, out.length));
+	}
+
+	public static final int SIZE = 1024;
+	/** one guard sample before, two after for the Hermite neighbours, one more for a phase that rounds up to 1.0 */
+	private static final float[] TABLE = new float[SIZE + 4];
+	static {
+		for (int i = 0; i < TABLE.length; i++)
+			TABLE[i] = (float) Math.sin(2 * Math.PI * (i - 1) / SIZE);
+	}
+
+	// sin(pi/2 * z), z in [0, 1]
+	private static final float C1 = 1.5707962900223709f;
+	private static final float C3 = -0.6459633598659001f;
+	private static final float C5 = 0.07968848054037213f;
+	private static final float C7 = -0.004672227923299868f;
+	private static final float C9 = 0.00015082056456927598f;
+
+	/** wrap to [0, 1] (1 only when a tiny negative phase rounds up, the table has a guard for it). Math.floor,
+	 *  not an int cast: the cast saturates past 2^31 and would index far outside the table. */
+	static float frac(float p) {
+		return p - (float) Math.floor(p);
+	}
+
+	static float linear(float phase) {
+		final float x = frac(phase) * SIZE;
+		final int i = (int) x;
+		final float f = x - i;
+		final float a = TABLE[i + 1];
+		return a + f * (TABLE[i + 2] - a);
+	}
+
+	static float hermite(float phase) {
+		final float x = frac(phase) * SIZE;
+		final int i = (int) x;
+		final float f = x - i;
+		final float y0 = TABLE[i], y1 = TABLE[i + 1], y2 = TABLE[i + 2], y3 = TABLE[i + 3];
+		final float c1 = 0.5f * (y2 - y0);
+		final float c2 = y0 - 2.5f * y1 + 2f * y2 - 0.5f * y3;
+		final float c3 = 0.5f * (y3 - y0) + 1.5f * (y1 - y2);
+		return ((c3 * f + c2) * f + c1) * f + y1;
+	}
+
+	static float minimax(float phase) {
+		final float x = frac(phase + 0.5f) - 0.5f; // [-0.5, 0.5)
+		final float z = 1f - Math.abs(4f * Math.abs(x) - 1f); // fold onto the first quarter wave, [0, 1]
+		final float z2 = z * z;
+		final float y = z * (C1 + z2 * (C3 + z2 * (C5 + z2 * (C7 + z2 * C9))));
+		return Math.copySign(y, x);
+	}
+
+}
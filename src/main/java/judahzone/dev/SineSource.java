@@ -0,0 +1,112 @@
+package judahzone.dev;
+
+import judahzone.util.Phase;
+
+/** Test-signal sine generator with a selectable backend, phase carried in radians between calls
+ *  so a tone stays continuous across buffers.
+ *  <p>RECURSIVE: quadrature (coupled-form) oscillator in double precision, seeded from the exact phase
+ *  once per call: two trig calls per buffer, a 2x2 rotation per sample.
+ *  <p>LUT: {@link Phase#sin(float)} table, float precision.
+ *  <p>EXACT: Math.sin every sample, the reference. */
+public final class SineSource {
+
+	public enum Backend { RECURSIVE, LUT, EXACT }
+
+	public static final double TWO_PI = 2.0 * Math.PI;
+
+	private final Backend backend;
+	private double phase;
+
+	public SineSource(Backend backend) {
+		this.backend = backend;
+	}
+
+	public SineSource() {
+		this(Backend.RECURSIVE);
+	}
+
+	public Backend getBackend() { return backend; }
+
+	public double getPhase() { return phase; }
+
+	public void reset() { phase = 0; }
+
+	/** fill the whole buffer, continuing from the previous call */
+	public void fill(float[] buf, double freqHz, double sampleRate, double amplitude) {
+		phase = fill(backend, buf, 0, buf.length, freqHz, sampleRate, amplitude, phase);
+	}
+
+	/** @return the phase after len samples, wrapped to [0, 2 pi), for the next call */
+	public static double fill(Backend backend, float[] buf, int offset, int len, double freqHz,
+			double sampleRate, double amplitude, double phase) {
+		final double inc = TWO_PI * freqHz / sampleRate;
+		final int end = offset + len;
+		switch (backend) {
+			case RECURSIVE -> {
+				final double cr = Math.cos(inc);
+				final double sr = Math.sin(inc);
+				double s = Math.sin(phase);
+				double c = Math.cos(phase);
+				for (int i = offset; i < end; i++) {
+					buf[i] = (float) (amplitude * s);
+					final double t = c * cr - s * sr;
+					s = s * cr + c * sr;
+					c = t;
+				}
+			}
+			case LUT -> {
+				final double cycles = phase / TWO_PI;
+				final double step = freqHz / sampleRate;
+				final float amp = (float) amplitude;
+				for (int i = offset; i < end; i++) {
+					double p = cycles + step * (i - offset);
+					buf[i] = amp * Phase.sin((float) (p - Math.floor(p)));
+				}
+			}
+			case EXACT -> {
+				for (int i = offset; i < end; i++)
+					buf[i] = (float) (amplitude * Math.sin(phase + inc * (i - offset)));
+			}
+		}
+		return wrap(phase + inc * len);
+	}
+
+	public static double wrap(double radians) {
+		return radians - TWO_PI * Math.floor(radians / TWO_PI);
+	}
+
+	/** print ns/sample and max deviation from EXACT of each backend */
+	public static void benchmark(int bufSize, int blocks) {
+		final float[] buf = new float[bufSize];
+		final float[] reference = new float[bufSize];
+		final double hz = 440, sr = 48000;
+		System.out.println("Sine test signal, bufSize " + bufSize + ", " + blocks + " blocks per run");
+		System.out.printf("%-10s %10s %12s%n", "backend", "ns/sample", "max err");
+		for (Backend backend : Backend.values()) {
+			double phase = 0;
+			for (int i = 0; i < blocks; i++) // warmup
+				phase = fill(backend, buf, 0, bufSize, hz, sr, 1, phase);
+			phase = 0;
+			float check = 0;
+			long start = System.nanoTime();
+			for (int i = 0; i < blocks; i++) {
+				phase = fill(backend, buf, 0, bufSize, hz, sr, 1, phase);
+				check += buf[1];
+			}
+			double ns = (System.nanoTime() - start) / (double) blocks / bufSize;
+			fill(Backend.EXACT, reference, 0, bufSize, hz, sr, 1, phase);
+			fill(backend, buf, 0, bufSize, hz, sr, 1, phase);
+			float max = 0;
+			for (int i = 0; i < bufSize; i++)
+				max = Math.max(max, Math.abs(buf[i] - reference[i]));
+			if (check != check)
+				System.err.println("NaN produced");
+			System.out.printf("%-10s %10.3f %12.3e%n", backend, ns, max);
+		}
+	}
+
+	public static void main(String[] args) {
+		benchmark(4096, 20_000);
+	}
+
+}
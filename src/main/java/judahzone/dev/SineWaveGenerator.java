@@ -28,7 +28,7 @@ public class SineWaveGenerator {
     }
 
     /**
-	 * Fill `buf` with a sine wave at freqHz. Returns the updated phase (radians) to use
+	 * Fill `buf` with a sine wave at freqHz, see {@link SineSource}. Returns the updated phase (radians) to use
 	 * for the next call so the tone is continuous across buffers.
 	 *
 	 * @param buf       float[] buffer to fill (length = FFT_SIZE)
@@ -38,22 +38,10 @@ public class SineWaveGenerator {
 	 * @return new phase in radians to pass to the next call
 	 */
 	public static double fillSine(float[] buf, double freqHz, double sampleRate, double amplitude) {
-		double phase = 0;
-		if (buf == null || buf.length == 0) return phase;
-	    final double twoPi = 2.0 * Math.PI;
-	    // phase increment per sample (radians)
-	    final double phaseInc = twoPi * freqHz / sampleRate;
-
+		if (buf == null || buf.length == 0) return 0;
 	    // keep amplitude safe
 	    final double a = Math.max(0.0, Math.min(1.0, amplitude));
-
-	    for (int i = 0; i < buf.length; i++) {
-	        buf[i] = (float) (a * Math.sin(phase));
-	        phase += phaseInc;
-	        // wrap phase into [0, 2PI) to avoid unbounded growth
-	        if (phase >= twoPi) phase -= twoPi * Math.floor(phase / twoPi);
-	    }
-	    return phase;
+	    return SineSource.fill(SineSource.Backend.RECURSIVE, buf, 0, buf.length, freqHz, sampleRate, a, 0);
 	}
 
 }
@@ -0,0 +1,133 @@
+package judahzone.dev;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+import net.judah.drums.Drum;
+
+/** Preallocated polyphonic pool of one drum type. Rolls and flams ring out on separate voices
+ *  instead of restarting a single envelope; when every voice is busy one is stolen.
+ *  <p>Voices are built once up front, trigger() and process() do not allocate. */
+public final class VoicePool<T extends Drum> {
+
+	public static enum Steal {
+		/** the voice triggered longest ago */
+		OLDEST,
+		/** the voice with the lowest peak in the last block (renders each voice through a scratch buffer) */
+		QUIETEST
+	}
+
+	private final Drum[] voices;
+	private final long[] started;
+	private final float[] peak;
+	private final float[] workL;
+	private final float[] workR;
+	private Steal steal;
+	private long clock;
+
+	public VoicePool(int polyphony, Supplier<T> factory, Steal steal, int bufSize) {
+		if (polyphony < 1)
+			throw new IllegalArgumentException("polyphony " + polyphony);
+		voices = new Drum[polyphony];
+		for (int i = 0; i < polyphony; i++)
+			voices[i] = factory.get();
+		started = new long[polyphony];
+		peak = new float[polyphony];
+		workL = new float[bufSize];
+		workR = new float[bufSize];
+		this.steal = steal;
+	}
+
+	public VoicePool(int polyphony, Supplier<T> factory) {
+		this(polyphony, factory, Steal.OLDEST, judahzone.util.Constants.bufSize());
+	}
+
+	/** Start the next free (or stolen) voice.
+	 * @return the voice that was triggered */
+	public T trigger() {
+		int v = allocate();
+		voices[v].trigger(null);
+		started[v] = ++clock;
+		peak[v] = Float.MAX_VALUE; // a fresh hit is never the quietest
+		return get(v);
+	}
+
+	/** Start a voice at a new fundamental. */
+	public T trigger(float hz) {
+		int v = allocate();
+		voices[v].setFundamental(hz);
+		voices[v].trigger(null);
+		started[v] = ++clock;
+		peak[v] = Float.MAX_VALUE;
+		return get(v);
+	}
+
+	private int allocate() {
+		int pick = 0;
+		for (int i = 0; i < voices.length; i++)
+			if (!voices[i].isSounding())
+				return i;
+		if (steal == Steal.QUIETEST) {
+			for (int i = 1; i < voices.length; i++)
+				if (peak[i] < peak[pick] || (peak[i] == peak[pick] && started[i] < started[pick]))
+					pick = i;
+		} else {
+			for (int i = 1; i < voices.length; i++)
+				if (started[i] < started[pick])
+					pick = i;
+		}
+		return pick;
+	}
+
+	/** Mix all sounding voices into the sums, idle voices cost nothing. */
+	public void process(float[] sumL, float[] sumR) {
+		for (int i = 0; i < voices.length; i++) {
+			final Drum voice = voices[i];
+			if (!voice.isSounding())
+				continue;
+			if (steal == Steal.OLDEST) {
+				voice.process(sumL, sumR);
+				continue;
+			}
+			Arrays.fill(workL, 0f);
+			Arrays.fill(workR, 0f);
+			voice.process(workL, workR);
+			final int n = Math.min(workL.length, sumL.length);
+			float max = 0f;
+			for (int j = 0; j < n; j++) {
+				float l = workL[j];
+				float r = workR[j];
+				sumL[j] += l;
+				sumR[j] += r;
+				max = Math.max(max, Math.max(Math.abs(l), Math.abs(r)));
+			}
+			peak[i] = max;
+		}
+	}
+
+	/** @return number of voices currently sounding */
+	public int active() {
+		int result = 0;
+		for (Drum voice : voices)
+			if (voice.isSounding())
+				result++;
+		return result;
+	}
+
+	public boolean isSounding() {
+		for (Drum voice : voices)
+			if (voice.isSounding())
+				return true;
+		return false;
+	}
+
+	public int getPolyphony() { return voices.length; }
+
+	@SuppressWarnings("unchecked")
+	public T get(int idx) { return (T) voices[idx]; }
+
+	public Steal getSteal() { return steal; }
+
+	public void setSteal(Steal steal) { this.steal = steal; }
+
+}
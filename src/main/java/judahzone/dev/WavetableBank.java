@@ -0,0 +1,139 @@
+package judahzone.dev;
+
+import java.util.EnumMap;
+
+import judahzone.data.Shape;
+import judahzone.util.Constants;
+
+/** Band-limited mipmaps of every {@link Shape}, one table per octave.
+ *  <p>Each Shape's {@link Shape#getWave()} cycle is analysed once, then resynthesized at every level
+ *  with only the harmonics that stay below Nyquist for that octave: level 0 keeps all LENGTH/2 harmonics,
+ *  each level up halves them, the top level is the fundamental alone. Tables are built on first use,
+ *  never modified afterwards and shared by every voice.
+ *  <p>Band-limited SAW/SQR ring (Gibbs) slightly past +/-1. */
+public final class WavetableBank {
+
+	public static final int LENGTH = Shape.LENGTH;
+	/** number of octaves, the top level holds the fundamental only */
+	public static final int LEVELS = Integer.numberOfTrailingZeros(LENGTH) - 1; // LENGTH/2 harmonics >> LEVELS == 1
+	/** guard samples appended so interpolation never wraps, also from a wrapped phase that rounds up to 1.0 */
+	public static final int GUARD = 2;
+
+	private static final EnumMap<Shape, float[][]> BANK = new EnumMap<>(Shape.class);
+
+	private WavetableBank() { }
+
+	/** @return all mip levels of a shape, index 0 being full bandwidth */
+	public static synchronized float[][] get(Shape shape) {
+		return BANK.computeIfAbsent(shape, WavetableBank::build);
+	}
+
+	/** build every shape now, off the audio thread */
+	public static void preload() {
+		for (Shape shape : Shape.values())
+			get(shape);
+	}
+
+	public static float[] table(Shape shape, int level) {
+		return get(shape)[level];
+	}
+
+	/** @param inc phase increment, cycles per sample
+	 *  @return the lowest level whose harmonics all stay below Nyquist at this increment */
+	public static int level(float inc) {
+		// harmonics at level k: (LENGTH/2) >> k, alias free while inc <= 2^k / LENGTH, so ceil(log2(inc * LENGTH))
+		int level = Math.getExponent(Math.nextDown(inc * LENGTH)) + 1;
+		return Math.max(0, Math.min(LEVELS, level));
+	}
+
+	public static int levelForHz(float hz) {
+		return level(hz / Constants.sampleRate());
+	}
+
+	/** linear interpolation, phase in [0, 1) */
+	public static float lookup(float[] table, float phase) {
+		final float x = phase * LENGTH;
+		final int i = (int) x;
+		final float a = table[i];
+		return a + (x - i) * (table[i + 1] - a);
+	}
+
+	private static float[][] build(Shape shape) {
+		final float[] wave = shape.getWave();
+		final int half = LENGTH / 2;
+		final double[] cos = new double[LENGTH];
+		final double[] sin = new double[LENGTH];
+		for (int n = 0; n < LENGTH; n++) {
+			cos[n] = Math.cos(2 * Math.PI * n / LENGTH);
+			sin[n] = Math.sin(2 * Math.PI * n / LENGTH);
+		}
+
+		// analysis, DC dropped
+		final double[] re = new double[half + 1];
+		final double[] im = new double[half + 1];
+		for (int k = 1; k <= half; k++) {
+			double r = 0, m = 0;
+			for (int n = 0, idx = 0; n < LENGTH; n++, idx = (idx + k) & (LENGTH - 1)) {
+				r += wave[n] * cos[idx];
+				m += wave[n] * sin[idx];
+			}
+			final double norm = k == half ? 1.0 / LENGTH : 2.0 / LENGTH; // Nyquist bin is not mirrored
+			re[k] = r * norm;
+			im[k] = m * norm;
+		}
+
+		final float[][] result = new float[LEVELS + 1][];
+		final double[] acc = new double[LENGTH];
+		int done = 0;
+		// resynthesize from the top level down, each level adds the next band of harmonics
+		for (int level = LEVELS; level >= 0; level--) {
+			final int harmonics = half >> level;
+			for (int k = done + 1; k <= harmonics; k++)
+				for (int n = 0, idx = 0; n < LENGTH; n++, idx = (idx + k) & (LENGTH - 1))
+					acc[n] += re[k] * cos[idx] + im[k] * sin[idx];
+			done = harmonics;
+			final float[] table = new float[LENGTH + GUARD];
+			for (int n = 0; n < LENGTH; n++)
+				table[n] = (float) acc[n];
+			table[LENGTH] = table[0];
+			table[LENGTH + 1] = table[1];
+			result[level] = table;
+		}
+		return result;
+	}
+
+	/** Wavetable oscillator reading the mip level that matches its pitch. */
+	public static final class Osc {
+
+		private final float[][] levels;
+		private float[] table;
+		private float phase;
+		private float inc;
+
+		public Osc(Shape shape) {
+			levels = get(shape);
+			table = levels[0];
+		}
+
+		public void setFrequency(float hz) {
+			inc = hz / Constants.sampleRate();
+			table = levels[level(inc)];
+		}
+
+		public void reset() { phase = 0f; }
+
+		/** overwrite out with n samples */
+		public void process(float[] out, int n) {
+			final float[] t = table;
+			final float step = inc;
+			float p = phase;
+			for (int i = 0; i < n; i++) {
+				out[i] = lookup(t, p);
+				p += step;
+				p -= (int) p;
+			}
+			phase = p;
+		}
+	}
+
+}
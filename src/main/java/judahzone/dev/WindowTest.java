@@ -5,11 +5,14 @@ import java.security.InvalidParameterException;
 import be.tarsos.dsp.util.fft.FFT;
 import be.tarsos.dsp.util.fft.HammingWindow;
 
+/** Tarsos' FFT(size, window) windows the whole buffer it is handed, so a zero-padded (longer than size)
+ *  buffer throws. {@link FFTPlans.Plan#forwardTransform(float[], int, float[])} windows only the signal and pads
+ *  the rest in the same pass. */
 public class WindowTest {
 
 	public static void error() {
 		final int FFT_SIZE = 4096; // any power of 2 should work
-	    final FFT noWindow = new FFT(FFT_SIZE); // pass
+	    final FFT noWindow = FFTPlans.fft(FFT_SIZE); // pass
 	    final FFT withWindow = new FFT(FFT_SIZE, new HammingWindow()); // cause of later error
 
 	    final float[] test1 = new float[FFT_SIZE * 2];
@@ -65,4 +68,43 @@ public class WindowTest {
 		System.out.println("window transform passed: " + max);
 	}
 
+	/** windowing and zero-padding together, without the error above */
+	public static void fixed() {
+		final int FFT_SIZE = 4096;
+		final FFTPlans.Plan windowed = FFTPlans.get(FFT_SIZE, HammingWindow.class);
+		final FFTPlans.Plan padded = FFTPlans.get(FFT_SIZE * 2, FFT_SIZE, HammingWindow.class); // 2x interpolated bins
+		final float[] sinWave = new float[FFT_SIZE];
+		final double step = 2.0 * Math.PI * 440.0 / 48000.0;
+		for (int i = 0; i < sinWave.length; i++)
+			sinWave[i] = (float) (0.6 * Math.sin(step * i));
+
+		final float[] test = new float[FFT_SIZE]; // modulus wants exactly twice the magnitudes
+		final float[] magnitudes = new float[FFT_SIZE / 2];
+		windowed.forwardTransform(sinWave, 0, test);
+		windowed.modulus(test, magnitudes);
+		System.out.println("windowed: " + peak(magnitudes));
+
+		final float[] paddedTest = new float[FFT_SIZE * 2];
+		final float[] interpolated = new float[FFT_SIZE];
+		padded.forwardTransform(sinWave, 0, paddedTest); // window 4096, pad to 8192, transform
+		padded.modulus(paddedTest, interpolated);
+		System.out.println("windowed, zero-padded: " + peak(interpolated));
+	}
+
+	private static String peak(float[] magnitudes) {
+		int bin = 0;
+		for (int i = 0 ; i < magnitudes.length; i++) {
+			if (!Float.isFinite(magnitudes[i]) || magnitudes[i] < 0f)
+				throw new InvalidParameterException(i + ": " + magnitudes[i]);
+			if (magnitudes[i] > magnitudes[bin])
+				bin = i;
+		}
+		return "bin " + bin + " of " + magnitudes.length + ", " + magnitudes[bin];
+	}
+
+	public static void main(String[] args) {
+		fixed();
+		error();
+	}
+
 }
@@ -0,0 +1,162 @@
+package judahzone.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Properties;
+
+/** Micro-benchmark harness for the real-time tests: times an operation, counts the bytes it allocated
+ *  on the calling thread (com.sun.management.ThreadMXBean) and compares against baselines.properties.
+ *  <p>Baselines are relative: an operation's ns/op divided by that of a fixed {@link #reference()} kernel timed
+ *  in the same run, so a faster or slower (or busier) machine moves both. Every run prints the ratio; the
+ *  regression check itself is opt-in with -Dbench.regress=true, where a ratio above its baseline by more than
+ *  the tolerance percent fails and a key without a baseline fails too. Run with -Dbench.record=true to print
+ *  key=value lines for the baselines file, -Dbench.tolerance=N to override the tolerance. */
+public final class Bench {
+
+	public static final String BASELINES = "baselines.properties";
+	public static final double DEFAULT_TOLERANCE = 25;
+	/** bytes a first timed pass may allocate once, if the repeat pass allocates nothing */
+	public static final long ONE_OFF_LIMIT = 1024;
+
+	private static final com.sun.management.ThreadMXBean THREADS =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+	private static final Properties baselines = load();
+	private static final int REFERENCE_WARMUP = 20_000;
+	private static final int REFERENCE_PASSES = 5;
+	private static final int REFERENCE_ITERATIONS = 4_000;
+	private static final float[] block = new float[256];
+	private static float state;
+	static {
+		System.nanoTime(); // the first call allocates
+		allocated();
+	}
+
+	/** @param firstPass bytes allocated by the first timed pass; if non-zero, allocated is from the repeat pass */
+	public static record Result(String name, int iterations, double nsPerOp, long allocated, long firstPass) { }
+
+	private Bench() { }
+
+	private static Properties load() {
+		Properties result = new Properties();
+		try (InputStream in = Bench.class.getResourceAsStream(BASELINES)) {
+			if (in != null)
+				result.load(in);
+		} catch (IOException e) {
+			System.err.println(BASELINES + ": " + e.getMessage());
+		}
+		return result;
+	}
+
+	/** @return bytes allocated by the current thread so far, -1 if the JVM cannot tell */
+	public static long allocated() {
+		if (!THREADS.isThreadAllocatedMemorySupported() || !THREADS.isThreadAllocatedMemoryEnabled())
+			return -1;
+		return THREADS.getCurrentThreadAllocatedBytes(); // unlike getThreadAllocatedBytes(id), does not allocate itself
+	}
+
+	/** run op warmup times, then time and count allocations over iterations. If that pass allocated, it is
+	 *  repeated once and both passes are reported: a deoptimization and recompile landing mid-pass (shared code
+	 *  warmed by an earlier test) allocates a few hundred bytes one time only, an allocating op allocates again.
+	 *  {@link #assertNoAllocation} allows the first pass at most {@link #ONE_OFF_LIMIT} bytes. */
+	public static Result measure(String name, Runnable op, int warmup, int iterations) {
+		loop(op, warmup); // also compiles loop(), so the timed pass doesn't count the JIT's own work
+		final long overhead = overhead();
+		long before = allocated();
+		long start = System.nanoTime();
+		loop(op, iterations);
+		long elapsed = System.nanoTime() - start;
+		long after = allocated();
+		final long first = before < 0 ? -1 : Math.max(0, after - before - overhead);
+		if (first > 0) {
+			before = allocated();
+			start = System.nanoTime();
+			loop(op, iterations);
+			elapsed = System.nanoTime() - start;
+			after = allocated();
+		}
+		final long bytes = before < 0 ? -1 : Math.max(0, after - before - overhead);
+		Result result = new Result(name, iterations, elapsed / (double) iterations, bytes, first);
+		if (first > 0)
+			System.out.printf("%s: first pass allocated %d bytes, repeat pass %d%n", name, first, bytes);
+		return result;
+	}
+
+	private static void loop(Runnable op, int iterations) {
+		for (int i = 0; i < iterations; i++)
+			op.run();
+	}
+
+	/** bytes the allocation probe itself costs */
+	private static long overhead() {
+		long a = allocated();
+		long b = allocated();
+		return Math.max(0, b - a);
+	}
+
+	public static void assertNoAllocation(Result result) {
+		if (result.allocated() < 0) {
+			System.out.println(result.name() + ": thread allocation counting unsupported, skipped");
+			return;
+		}
+		assertEquals(0, result.allocated(), result.name() + " allocated " + result.allocated()
+				+ " bytes over " + result.iterations() + " iterations");
+		assertTrue(result.firstPass() <= ONE_OFF_LIMIT, result.name() + " allocated " + result.firstPass()
+				+ " bytes in its first pass, more than a one-off " + ONE_OFF_LIMIT);
+	}
+
+	/** ns/op of the reference kernel, timed now: a one-pole lowpass and gain over a 256 sample block, the
+	 *  shape of most of the tested hot paths. The fastest of a few passes, to step over a stray interruption. */
+	public static double reference() {
+		loop(Bench::kernel, REFERENCE_WARMUP);
+		long best = Long.MAX_VALUE;
+		for (int pass = 0; pass < REFERENCE_PASSES; pass++) {
+			long start = System.nanoTime();
+			loop(Bench::kernel, REFERENCE_ITERATIONS);
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		return best / (double) REFERENCE_ITERATIONS;
+	}
+
+	private static void kernel() {
+		float z = state;
+		for (int i = 0; i < block.length; i++) {
+			z += 0.1f * (block[i] - z);
+			block[i] = z * 0.99f + 0.001f;
+		}
+		state = z;
+	}
+
+	/** print the result relative to {@link #reference()}; with -Dbench.regress=true fail if that ratio exceeds
+	 *  its baseline by more than the tolerance, or has no baseline */
+	public static void assertBaseline(Result result) {
+		final double ratio = result.nsPerOp() / reference();
+		if (Boolean.getBoolean("bench.record"))
+			System.out.printf("%s=%.3f%n", result.name(), ratio);
+		else
+			System.out.printf("%s: %.1f ns/op, %.3f x reference%n", result.name(), result.nsPerOp(), ratio);
+		if (!Boolean.getBoolean("bench.regress"))
+			return;
+		String baseline = baselines.getProperty(result.name());
+		assertTrue(baseline != null && !baseline.isBlank(), result.name() + " has no baseline in " + BASELINES
+				+ ", record one with -Dbench.record=true");
+		final double expected = Double.parseDouble(baseline.trim());
+		final double tolerance = Double.parseDouble(System.getProperty("bench.tolerance",
+				baselines.getProperty("tolerance", Double.toString(DEFAULT_TOLERANCE))));
+		final double limit = expected * (1 + tolerance / 100);
+		assertTrue(ratio <= limit, String.format("%s regressed: %.3f x reference, baseline %.3f (+%.0f%% allowed)",
+				result.name(), ratio, expected, tolerance));
+	}
+
+	/** measure, then assert zero allocation and no regression */
+	public static Result check(String name, Runnable op, int warmup, int iterations) {
+		Result result = measure(name, op, warmup, iterations);
+		assertNoAllocation(result);
+		assertBaseline(result);
+		return result;
+	}
+
+}
@@ -0,0 +1,182 @@
+package judahzone.test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import judahzone.dev.BiquadCascade;
+import judahzone.dev.BiquadCascade.Type;
+import judahzone.filter.Coord;
+import judahzone.filter.FilterT;
+import judahzone.util.AudioMetrics;
+import judahzone.util.Constants;
+
+/** Fused biquad cascade against one filter at a time, and its responses. */
+public class BiquadCascadeTest {
+
+	private static final int N = 4096;
+	private static final float SR = Constants.sampleRate();
+
+	private static float[] sine(float hz, int n) {
+		float[] result = new float[n];
+		for (int i = 0; i < n; i++)
+			result[i] = (float) Math.sin(2 * Math.PI * hz * i / SR);
+		return result;
+	}
+
+	/** steady state RMS gain of the cascade at hz, over one second */
+	private static double gain(BiquadCascade filter, float hz) {
+		final int n = (int) SR;
+		filter.reset();
+		filter.process(sine(hz, n));
+		float[] buf = sine(hz, n); // settled
+		filter.process(buf);
+		return AudioMetrics.rms(buf) / Math.sqrt(0.5);
+	}
+
+	/** reference: one section and one full pass over the buffer at a time */
+	private static void separate(BiquadCascade filter, float[] buf) {
+		for (int s = 0; s < filter.getSections(); s++) {
+			float[] c = filter.getCoefficients(s);
+			float z1 = 0, z2 = 0;
+			for (int i = 0; i < buf.length; i++) {
+				float x = buf[i];
+				float y = c[0] * x + z1;
+				z1 = c[1] * x - c[3] * y + z2;
+				z2 = c[2] * x - c[4] * y;
+				buf[i] = y;
+			}
+		}
+	}
+
+	/** reference: double precision direct form I */
+	private static void directForm(BiquadCascade filter, float[] buf) {
+		for (int s = 0; s < filter.getSections(); s++) {
+			float[] c = filter.getCoefficients(s);
+			double x1 = 0, x2 = 0, y1 = 0, y2 = 0;
+			for (int i = 0; i < buf.length; i++) {
+				double x = buf[i];
+				double y = c[0] * x + c[1] * x1 + c[2] * x2 - c[3] * y1 - c[4] * y2;
+				x2 = x1;
+				x1 = x;
+				y2 = y1;
+				y1 = y;
+				buf[i] = (float) y;
+			}
+		}
+	}
+
+	private static BiquadCascade filters(int sections) {
+		BiquadCascade result = new BiquadCascade(sections);
+		for (int s = 0; s < sections; s++) {
+			switch (s % 3) {
+				case 0 -> result.set(s, Type.LoCut, 40 + 30 * s, 0.9f, 0);
+				case 1 -> result.set(s, Type.Peak, 300 * s, 0, 4, 1.5f);
+				default -> result.set(s, Type.HiCut, 12000 - 500 * s, 0.7f, 0);
+			}
+		}
+		return result;
+	}
+
+	@Test
+	void testFusedMatchesSeparatePasses() {
+		for (int sections = 1; sections <= 7; sections++) {
+			BiquadCascade filter = filters(sections);
+			float[] fused = TestUtilities.noise(N, sections);
+			float[] passes = fused.clone();
+			float[] precise = fused.clone();
+			filter.process(fused);
+			separate(filter, passes);
+			directForm(filter, precise);
+			assertArrayEquals(passes, fused, 0f, sections + " sections");
+			assertArrayEquals(precise, fused, 2e-3f, sections + " sections, double precision");
+		}
+	}
+
+	@Test
+	void testStereoMatchesMono() {
+		for (int sections = 1; sections <= 4; sections++) {
+			BiquadCascade mono = filters(sections);
+			BiquadCascade stereo = filters(sections);
+			float[] l = TestUtilities.noise(N, 1), r = TestUtilities.noise(N, 2);
+			float[] ml = l.clone(), mr = r.clone();
+			stereo.process(l, r);
+			mono.process(ml);
+			mono.reset();
+			mono.process(mr);
+			assertArrayEquals(ml, l, 0f, "left " + sections);
+			assertArrayEquals(mr, r, 0f, "right " + sections);
+		}
+	}
+
+	@Test
+	void testBlockSplitKeepsState() {
+		BiquadCascade whole = filters(5);
+		BiquadCascade blocks = filters(5);
+		float[] a = TestUtilities.noise(N, 3), b = a.clone();
+		float[] c = TestUtilities.noise(N, 4), d = c.clone();
+		whole.process(a, c);
+		for (int off = 0; off < N; off += 100)
+			blocks.process(b, d, off, Math.min(100, N - off));
+		assertArrayEquals(a, b, 0f);
+		assertArrayEquals(c, d, 0f);
+	}
+
+	@Test
+	void testCutPairResponse() {
+		BiquadCascade cut = BiquadCascade.cut(100, 5000, 0.707f);
+		assertEquals(1, gain(cut, 1000), 0.05);
+		assertTrue(gain(cut, 20) < 0.1, "lo cut " + gain(cut, 20));
+		assertTrue(gain(cut, 18000) < 0.15, "hi cut " + gain(cut, 18000));
+		assertEquals(Math.sqrt(0.5), gain(cut, 100), 0.05, "-3 dB at the lo corner");
+	}
+
+	@Test
+	void testDrumBandPeak() {
+		BiquadCascade band = BiquadCascade.band(new Coord(20, 1), new FilterT(440, 6, 1), new Coord(10000, 1));
+		double db = 20 * Math.log10(gain(band, 440));
+		assertEquals(6, db, 0.3);
+		assertEquals(0, 20 * Math.log10(gain(band, 3000)), 0.5);
+	}
+
+	@Test
+	void testResonanceAboveButterworth() {
+		final double butterworth = 20 * Math.log10(Math.sqrt(0.5));
+		for (float reso : new float[] {0, 3, 9}) {
+			BiquadCascade lo = new BiquadCascade(1);
+			lo.set(0, Type.LoCut, new Coord(400, reso));
+			assertEquals(butterworth + reso, 20 * Math.log10(gain(lo, 400)), 0.3, "gain at the cutoff, reso " + reso);
+		}
+		BiquadCascade flat = new BiquadCascade(1);
+		flat.set(0, Type.HiCut, new Coord(5000, 0));
+		BiquadCascade reference = new BiquadCascade(1);
+		reference.set(0, Type.HiCut, 5000, 0, 0); // q not positive: Butterworth
+		assertArrayEquals(reference.getCoefficients(0), flat.getCoefficients(0), 1e-6f, "reso 0 is Butterworth");
+	}
+
+	@Test
+	void testBypassIsIdentity() {
+		BiquadCascade filter = new BiquadCascade(4);
+		float[] buf = TestUtilities.noise(N, 5), copy = buf.clone();
+		filter.process(buf);
+		assertArrayEquals(copy, buf, 0f);
+		assertThrows(IllegalArgumentException.class, () -> new BiquadCascade(0));
+	}
+
+	@RealTimeSafe(warmup = 20_000, iterations = 50_000)
+	void testProcessRealTimeSafe(RealTime rt) {
+		final BiquadCascade filter = filters(3);
+		final float[] srcL = TestUtilities.noise(N, 6), srcR = TestUtilities.noise(N, 7);
+		final float[] l = new float[256], r = new float[256];
+		Bench.assertBaseline(rt.measure("biquadCascade.process", () -> {
+			System.arraycopy(srcL, 0, l, 0, l.length);
+			System.arraycopy(srcR, 0, r, 0, r.length);
+			filter.process(l, r);
+		}));
+		assertTrue(Float.isFinite(l[0]) && Float.isFinite(r[0]));
+	}
+
+}
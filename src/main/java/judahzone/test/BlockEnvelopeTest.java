@@ -0,0 +1,219 @@
+package judahzone.test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import judahzone.api.Curve;
+import judahzone.dev.BlockEnvelope;
+import judahzone.dev.CurveTables;
+import judahzone.dev.CurveTables.Key;
+import judahzone.dev.CurveTables.Table;
+import judahzone.prism.Envelope.Delta;
+
+/** Block rendering of the ADSR stages, independent of how the audio is chopped into blocks. */
+public class BlockEnvelopeTest {
+
+	private static final float EPSILON = 1e-5f;
+	private static final int ATK = 480;
+	private static final int DK = 2400;
+	private static final float SUS = 0.5f;
+	private static final int REL = 4800;
+	private static final int TOTAL = 12_000;
+	private static final int RELEASE_AT = 6000;
+
+	@Test
+	void testStagesLinear() {
+		BlockEnvelope env = new BlockEnvelope(ATK, DK, SUS, REL, Curve.LINEAR);
+		float[] out = new float[TOTAL];
+		env.trigger();
+		assertEquals(Delta.ATK, env.getStage());
+		env.render(out, 0, RELEASE_AT);
+		for (int i = 1; i < ATK; i++)
+			assertTrue(out[i] > out[i - 1], "Attack should rise at " + i);
+		assertEquals(1f, out[ATK - 1], EPSILON, "Attack should peak at unity");
+		for (int i = ATK + 1; i < ATK + DK; i++)
+			assertTrue(out[i] < out[i - 1], "Decay should fall at " + i);
+		assertEquals(SUS, out[ATK + DK - 1], EPSILON, "Decay should land on sustain");
+		for (int i = ATK + DK; i < RELEASE_AT; i++)
+			assertEquals(SUS, out[i], 0f);
+		assertEquals(Delta.SUS, env.getStage());
+
+		env.release();
+		assertEquals(Delta.REL, env.getStage());
+		int written = env.render(out, RELEASE_AT, TOTAL - RELEASE_AT);
+		assertEquals(REL, written, "Release should last its length");
+		assertEquals(0f, out[RELEASE_AT + REL - 1], EPSILON);
+		assertEquals(0f, out[TOTAL - 1], 0f);
+		assertFalse(env.isPlaying());
+	}
+
+	@Test
+	void testExponentialLandsOnTarget() {
+		BlockEnvelope env = new BlockEnvelope(ATK, DK, SUS, REL, Curve.EXPONENTIAL);
+		float[] out = new float[ATK + DK];
+		env.trigger();
+		env.render(out, 0, out.length);
+		assertEquals(Delta.SUS, env.getStage());
+		assertEquals(SUS, out[out.length - 1], EPSILON);
+		float mid = out[ATK + DK / 2];
+		assertTrue(mid < SUS + (1f - SUS) / 2, "Exponential decay should fall faster than linear: " + mid);
+		for (int i = ATK + 1; i < out.length; i++)
+			assertTrue(out[i] <= out[i - 1] && out[i] >= SUS - EPSILON, "Decay out of shape at " + i);
+	}
+
+	@Test
+	void testBlockSizeInvariance() {
+		for (Curve curve : new Curve[] {Curve.LINEAR, Curve.EXPONENTIAL}) {
+			float[] whole = new float[TOTAL];
+			BlockEnvelope env = new BlockEnvelope(ATK, DK, SUS, REL, curve);
+			env.trigger();
+			env.render(whole, 0, RELEASE_AT);
+			env.release();
+			env.render(whole, RELEASE_AT, TOTAL - RELEASE_AT);
+
+			float[] chopped = new float[TOTAL];
+			env = new BlockEnvelope(ATK, DK, SUS, REL, curve);
+			env.trigger();
+			Random random = new Random(7);
+			int offset = 0;
+			while (offset < TOTAL) {
+				int n = Math.min(1 + random.nextInt(300), TOTAL - offset);
+				if (offset < RELEASE_AT)
+					n = Math.min(n, RELEASE_AT - offset);
+				env.render(chopped, offset, n);
+				offset += n;
+				if (offset == RELEASE_AT)
+					env.release();
+			}
+			assertArrayEquals(whole, chopped, curve + " output depends on block size");
+		}
+	}
+
+	@Test
+	void testProcessMatchesSingleSamples() {
+		BlockEnvelope block = new BlockEnvelope(ATK, DK, 0f, REL, Curve.EXPONENTIAL);
+		BlockEnvelope single = new BlockEnvelope(ATK, DK, 0f, REL, Curve.EXPONENTIAL);
+		block.trigger();
+		single.trigger();
+		float[] buf = new float[512];
+		int playing = 0;
+		for (int blocks = 0; blocks < 10; blocks++) {
+			Arrays.fill(buf, 2f);
+			playing += block.process(buf);
+			for (int i = 0; i < buf.length; i++)
+				assertEquals(2f * single.process(), buf[i], 0f, "block " + blocks + " sample " + i);
+		}
+		assertEquals(ATK + DK, playing, "No sustain, envelope should play attack + decay");
+		assertFalse(block.isPlaying());
+		Arrays.fill(buf, 1f);
+		assertEquals(0, block.process(buf), "Idle envelope processes nothing");
+		for (float f : buf)
+			assertEquals(0f, f);
+	}
+
+	@Test
+	void testZeroLengthStages() {
+		BlockEnvelope env = new BlockEnvelope(0, 0, 0f, 0, Curve.LINEAR);
+		env.trigger();
+		assertFalse(env.isPlaying(), "Nothing to play");
+
+		env = new BlockEnvelope(0, 0, 0.8f, 0, Curve.LINEAR);
+		env.trigger();
+		assertEquals(Delta.SUS, env.getStage());
+		assertEquals(0.8f, env.process(), 0f);
+		env.release();
+		assertFalse(env.isPlaying());
+	}
+
+	@Test
+	void testRetriggerFromCurrentLevel() {
+		BlockEnvelope env = new BlockEnvelope(ATK, DK, 0f, REL, Curve.EXPONENTIAL);
+		float[] out = new float[ATK + DK / 2];
+		env.trigger();
+		env.render(out, 0, out.length);
+		float before = env.getValue();
+		env.trigger();
+		assertEquals(Delta.ATK, env.getStage());
+		float after = env.process();
+		assertTrue(after >= before && after - before < 0.01f, "Retrigger should continue from " + before + ", got " + after);
+	}
+
+
+	@Test
+	void testTableMatchesComputed() {
+		CurveTables tables = new CurveTables();
+		for (Curve curve : new Curve[] {Curve.LINEAR, Curve.EXPONENTIAL}) {
+			float[] computed = new float[TOTAL];
+			BlockEnvelope env = new BlockEnvelope(ATK, DK, SUS, REL, curve);
+			env.trigger();
+			env.render(computed, 0, RELEASE_AT);
+			env.release();
+			env.render(computed, RELEASE_AT, TOTAL - RELEASE_AT);
+
+			float[] tabled = new float[TOTAL];
+			env = new BlockEnvelope(tables.get(new Key(ATK, DK, SUS, REL, curve)));
+			env.trigger();
+			env.render(tabled, 0, RELEASE_AT);
+			env.release();
+			env.render(tabled, RELEASE_AT, TOTAL - RELEASE_AT);
+
+			assertArrayEquals(Arrays.copyOf(computed, RELEASE_AT), Arrays.copyOf(tabled, RELEASE_AT), curve + " attack/decay");
+			for (int i = RELEASE_AT; i < TOTAL; i++)
+				assertEquals(computed[i], tabled[i], EPSILON, curve + " release at " + i);
+			assertFalse(env.isPlaying());
+		}
+	}
+
+	@Test
+	void testTableSwapMidAttack() {
+		CurveTables tables = new CurveTables();
+		Table longer = tables.get(new Key(ATK, DK, SUS, REL, Curve.EXPONENTIAL));
+		Table shorter = tables.get(new Key(ATK / 4, DK / 4, SUS, REL / 4, Curve.LINEAR));
+
+		float[] unswapped = new float[ATK];
+		BlockEnvelope env = new BlockEnvelope(longer);
+		env.trigger();
+		env.render(unswapped, 0, ATK);
+
+		float[] swapped = new float[ATK + DK / 4];
+		env = new BlockEnvelope(longer);
+		env.trigger();
+		env.render(swapped, 0, ATK / 2);
+		env.set(shorter); // mid attack, past the shorter table's whole attack
+		env.render(swapped, ATK / 2, swapped.length - ATK / 2);
+		assertArrayEquals(unswapped, Arrays.copyOf(swapped, ATK), "Attack should finish on the old table");
+
+		float[] expected = new float[ATK / 4 + DK / 4];
+		BlockEnvelope reference = new BlockEnvelope(shorter);
+		reference.trigger();
+		reference.render(expected, 0, expected.length);
+		assertArrayEquals(Arrays.copyOfRange(expected, ATK / 4, expected.length),
+				Arrays.copyOfRange(swapped, ATK, swapped.length), "Decay should come from the new table");
+		assertEquals(Delta.SUS, env.getStage());
+	}
+
+	@Test
+	void testTablesInterned() {
+		CurveTables tables = new CurveTables(3 * (ATK + DK + REL));
+		Table first = tables.get(new Key(ATK, DK, SUS, REL, Curve.EXPONENTIAL));
+		assertSame(first, tables.get(new Key(ATK, DK, SUS, REL, Curve.EXPONENTIAL)), "Equal keys should share a table");
+		assertNotSame(first, tables.get(new Key(ATK, DK, SUS, REL, Curve.LINEAR)));
+		assertEquals(2, tables.size());
+
+		tables.get(new Key(ATK, DK, 0.25f, REL, Curve.LINEAR));
+		tables.get(new Key(ATK, DK, 0.75f, REL, Curve.LINEAR));
+		assertEquals(3, tables.size(), "Budget should evict the least recently used");
+		assertTrue(tables.samples() <= 3 * (ATK + DK + REL));
+		assertNotSame(first, tables.get(new Key(ATK, DK, SUS, REL, Curve.EXPONENTIAL)), "Eldest should have been evicted");
+	}
+
+}
@@ -1,10 +1,14 @@
 package judahzone.test;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
 
 import org.junit.jupiter.api.Test;
 
+import judahzone.dev.NoiseBlock;
+import judahzone.dev.NoiseBlock.Tint;
 import judahzone.fx.MonoFilter;
 import judahzone.fx.op.Noise;
 import judahzone.fx.op.Noise.Colour;
@@ -66,4 +70,69 @@ public class ColourTest {
 			// System.out.println("Filtered colour " + c + " has RMS: " + rms);
 		}
 	}
+
+	@Test
+	void testBlockNoiseLevels() {
+		final int blocks = 32;
+		float[] all = new float[N_FRAMES * blocks];
+		for (boolean table : new boolean[] {false, true}) {
+			NoiseBlock gen = new NoiseBlock(N_FRAMES, 42);
+			gen.setTable(table);
+			for (Tint t : Tint.values()) {
+				gen.setTint(t);
+				gen.trigger();
+				for (int b = 0; b < blocks; b++)
+					gen.fill(all, b * N_FRAMES, N_FRAMES);
+				float rms = AudioMetrics.rms(all);
+				assertTrue(Float.isFinite(rms), t + " not finite");
+				assertEquals(Noise.TARGET_RMS, rms, 0.1f, t + (table ? " table" : " live") + " RMS");
+			}
+		}
+	}
+
+	@Test
+	void testBlockNoiseSpectralTilt() {
+		NoiseBlock gen = new NoiseBlock(N_FRAMES, 7);
+		float[] buf = new float[N_FRAMES * 16];
+		gen.setTint(Tint.WHITE);
+		gen.fill(buf, 0, buf.length);
+		assertTrue(Math.abs(lagOne(buf)) < 0.1f, "White should be uncorrelated: " + lagOne(buf));
+		gen.setTint(Tint.BROWN);
+		gen.fill(buf, 0, buf.length);
+		assertTrue(lagOne(buf) > 0.9f, "Brown should be dominated by lows: " + lagOne(buf));
+		gen.setTint(Tint.PINK);
+		gen.fill(buf, 0, buf.length);
+		assertTrue(lagOne(buf) > 0.3f, "Pink should lean low: " + lagOne(buf));
+		gen.setTint(Tint.VIOLET);
+		gen.fill(buf, 0, buf.length);
+		assertTrue(lagOne(buf) < -0.3f, "Violet should lean high: " + lagOne(buf));
+	}
+
+	@Test
+	void testEveryColourHasATint() {
+		NoiseBlock gen = new NoiseBlock(N_FRAMES, 11);
+		float[] buf = new float[N_FRAMES * 16];
+		for (Colour c : Colour.values()) {
+			gen.setColour(c);
+			gen.fill(buf, 0, buf.length);
+			float lag = lagOne(buf);
+			switch (c) {
+				case WHITE, VELVET -> assertTrue(Math.abs(lag) < 0.1f, c + " should be flat: " + lag);
+				case PINK, GREY -> assertTrue(lag > 0.3f && lag < 0.9f, c + " should lean low: " + lag);
+				case BROWN -> assertTrue(lag > 0.9f, c + " should be dominated by lows: " + lag);
+				default -> fail("No expected tilt for " + c);
+			}
+		}
+		assertEquals(Tint.WHITE, Tint.of(Colour.WHITE));
+	}
+
+	/** normalized lag-1 autocorrelation: +1 all lows, -1 all highs */
+	private static float lagOne(float[] buf) {
+		double num = 0, den = 0;
+		for (int i = 1; i < buf.length; i++) {
+			num += buf[i] * buf[i - 1];
+			den += buf[i] * buf[i];
+		}
+		return (float) (num / den);
+	}
 }
@@ -0,0 +1,121 @@
+package judahzone.test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import judahzone.dev.CombBank;
+import judahzone.fx.op.Comb;
+import judahzone.util.Constants;
+
+/** CombBank against one {@link Comb} at a time. */
+public class CombBankTest {
+
+	private static final int N_FRAMES = Constants.bufSize();
+	private static final int[] DELAYS = {1021, 1044, 1117, 1201};
+
+	private CombBank bank;
+
+	@BeforeEach
+	void setup() {
+		bank = new CombBank(DELAYS);
+		bank.setFeedback(0.7f);
+		bank.setDamp(0.2f);
+	}
+
+	@Test
+	void testImpulseAppearsAtEachDelay() {
+		bank.setDamp(0f);
+		bank.setFeedback(0.5f);
+		int frames = DELAYS[DELAYS.length - 1] + N_FRAMES;
+		float[] response = new float[frames];
+		float[] in = new float[N_FRAMES];
+		float[] out = new float[N_FRAMES];
+		in[0] = 1f;
+		for (int i = 0; i < frames; i += N_FRAMES) {
+			Arrays.fill(out, 0f);
+			bank.processMix(in, out);
+			in[0] = 0f;
+			System.arraycopy(out, 0, response, i, Math.min(N_FRAMES, frames - i));
+		}
+		for (int i = 0; i < DELAYS[0]; i++)
+			assertEquals(0f, response[i], "Nothing before the shortest delay, sample " + i);
+		for (int delay : DELAYS)
+			assertEquals(1f, response[delay], 1e-6f, "Impulse should arrive at " + delay);
+	}
+
+	@Test
+	void testMatchesSingleCombs() {
+		Random rng = new Random(99);
+		Comb[] singles = new Comb[DELAYS.length];
+		for (int k = 0; k < DELAYS.length; k++) {
+			singles[k] = new Comb(DELAYS[k]);
+			singles[k].setFeedback(0.7f);
+			singles[k].setdamp(0.2f);
+		}
+		float[] in = new float[N_FRAMES];
+		float[] out = new float[N_FRAMES];
+		float[] expected = new float[N_FRAMES];
+		for (int block = 0; block < 20; block++) {
+			for (int i = 0; i < N_FRAMES; i++)
+				in[i] = block < 2 ? rng.nextFloat() - 0.5f : 0f;
+			Arrays.fill(out, 0f);
+			Arrays.fill(expected, 0f);
+			bank.processMix(in, out);
+			for (Comb comb : singles)
+				comb.processMix(in, expected);
+			assertArrayEquals(expected, out, 1e-6f, "block " + block);
+		}
+	}
+
+	@Test
+	void testResetClearsState() {
+		float[] in = new float[N_FRAMES];
+		float[] out = new float[N_FRAMES];
+		in[0] = 1f;
+		for (int i = 0; i < 64; i++) {
+			bank.processMix(in, out);
+			in[0] = 0f;
+		}
+		bank.reset();
+		Arrays.fill(out, 0f);
+		bank.processMix(new float[N_FRAMES], out);
+		for (float f : out)
+			assertEquals(0f, f, "reset() should clear every delay line");
+	}
+
+	@Test
+	void testFreeverbStableUnderNoise() {
+		CombBank left = CombBank.freeverb(0);
+		CombBank right = CombBank.freeverb(CombBank.STEREO_SPREAD);
+		assertEquals(CombBank.FREEVERB.length, left.size());
+		assertTrue(right.getDelay(0) > left.getDelay(0), "Right channel should be spread");
+		for (CombBank b : new CombBank[] {left, right}) {
+			b.setFeedback(0.84f);
+			b.setDamp(0.2f);
+		}
+		Random rng = new Random(12345);
+		float[] in = new float[N_FRAMES];
+		float[] outL = new float[N_FRAMES];
+		float[] outR = new float[N_FRAMES];
+		for (int iter = 0; iter < 200; iter++) {
+			for (int i = 0; i < N_FRAMES; i++)
+				in[i] = (rng.nextFloat() * 2f - 1f) * 0.5f;
+			Arrays.fill(outL, 0f);
+			Arrays.fill(outR, 0f);
+			left.processMix(in, outL);
+			right.processMix(in, outR);
+			for (int i = 0; i < N_FRAMES; i++) {
+				assertTrue(Float.isFinite(outL[i]) && Math.abs(outL[i]) < 40f, "left out of bounds: " + outL[i]);
+				assertTrue(Float.isFinite(outR[i]) && Math.abs(outR[i]) < 40f, "right out of bounds: " + outR[i]);
+			}
+		}
+	}
+
+}
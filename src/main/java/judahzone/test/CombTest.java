@@ -249,25 +249,16 @@ public class CombTest {
      assertTrue(anyDiff, "Decorrelated combs should produce differing outputs");
      }
 
- @Test
- void performanceSmokeTest() {
-     final int ITER = 10_000; // moderate count for CI stability
+ @RealTimeSafe(warmup = 2_000, iterations = 10_000)
+ void performanceSmokeTest(RealTime rt) {
      float[] in = new float[N_FRAMES];
      float[] out = new float[N_FRAMES];
 
      // populate a short repeating pattern
      for (int i = 0; i < N_FRAMES; i++) in[i] = (i & 1) == 0 ? 0.6f : -0.4f;
 
-     long t0 = System.nanoTime();
-     for (int i = 0; i < ITER; i++) {
-         comb.processMix(in, out);
-         // cheap touch to avoid JIT-elide (read a sample)
-         float tmp = out[0];
-         if (tmp != tmp) fail("NaN produced");
-     }
-     long t1 = System.nanoTime();
-     double ms = (t1 - t0) / 1_000_000.0;
-     // reasonable threshold for CI: should be fast; relaxed to 200ms for portability
-     assertTrue(ms < 200, "Comb processing smoke test too slow: " + ms + "ms");
+     Bench.assertBaseline(rt.measure("comb.processMix", () -> comb.processMix(in, out)));
+     for (float f : out)
+         assertFalse(f != f, "NaN produced");
  }
 }
@@ -30,6 +30,17 @@ public abstract class DrumTest {
 		lifeCycle(drum);
 	}
 
+	/** every drum's process() runs on the audio thread */
+	@RealTimeSafe(warmup = 2_000, iterations = 2_000)
+	public void testProcessRealTimeSafe(RealTime rt) {
+		drum.setFundamental(440);
+		rt.measure(getClass().getSimpleName() + ".process", () -> {
+			if (!drum.isSounding())
+				drum.trigger(null);
+			drum.process(sumL, sumR);
+		});
+	}
+
 	public void lifeCycle(Drum osc) {
 		churn = 0;
 
@@ -290,19 +290,17 @@ public class EnvelopeTest {
         assertTrue(Math.abs(dkMs - 100) <= 5, "Decay ms mismatch: " + dkMs);
     }
 
-    @Test
-    void testNoRTAllocationsPerformance() {
+    @RealTimeSafe(warmup = 48_000, iterations = 48_000)
+    void testNoRTAllocationsPerformance(RealTime rt) {
         env.setAttack(50);
         env.setDecay(50);
         env.trigger();
 
-        long before = System.nanoTime();
-        for (int i = 0; i < 48000; i++)
+        Bench.assertBaseline(rt.measure("envelope.process", () -> {
             env.process();
-        long after = System.nanoTime();
-
-        double ms = (after - before) / 1_000_000.0;
-        assertTrue(ms < 100, "1 second of processing should be fast; took " + ms + "ms");
+            if (!env.isPlaying())
+                env.trigger();
+        }));
     }
 
     @Test
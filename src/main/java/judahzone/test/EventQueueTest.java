@@ -0,0 +1,156 @@
+package judahzone.test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import judahzone.api.Hz;
+import judahzone.data.Postage;
+import judahzone.data.Shape;
+import judahzone.dev.EventQueue;
+import judahzone.dev.ScheduledDrum;
+import judahzone.filter.Coord;
+import judahzone.filter.FilterT;
+import judahzone.fx.Gain.GainT;
+import judahzone.util.Constants;
+import net.judah.drums.Drama.Freqs;
+import net.judah.drums.Drum;
+import net.judah.drums.DrumSetup;
+import net.judah.drums.DrumType;
+import net.judah.drums.fm.DX9;
+import net.judah.drums.fm.FMOsc;
+import net.judah.drums.fm.FMSetup.FMOscSetup;
+import net.judah.drums.fm.FMSetup.OpSetup;
+import net.judah.drums.noise.Ride;
+import net.judah.midi.Actives;
+
+/** Event encoding, ring ordering, and triggers landing at their sample offset. */
+public class EventQueueTest {
+
+	private final int N = Constants.bufSize();
+	private final float[] sumL = new float[N];
+	private final float[] sumR = new float[N];
+
+	@Test
+	void testEncoding() {
+		long event = EventQueue.encode(EventQueue.FUNDAMENTAL, 511, 440.5f);
+		assertEquals(EventQueue.FUNDAMENTAL, EventQueue.type(event));
+		assertEquals(511, EventQueue.offset(event));
+		assertEquals(440.5f, EventQueue.data(event));
+		event = EventQueue.encode(EventQueue.TRIGGER, 0, -1f);
+		assertTrue(event != EventQueue.EMPTY, "A real event must never look empty");
+		assertEquals(-1f, EventQueue.data(event));
+	}
+
+	@Test
+	void testRingOrderAndCapacity() {
+		EventQueue queue = new EventQueue(5);
+		assertEquals(8, queue.capacity());
+		for (int i = 0; i < queue.capacity(); i++)
+			assertTrue(queue.offer(EventQueue.TRIGGER, i, i));
+		assertFalse(queue.offer(EventQueue.TRIGGER, 99, 0f), "Full ring should refuse");
+		for (int lap = 0; lap < 3; lap++)
+			for (int i = 0; i < queue.capacity(); i++) {
+				long event = queue.poll();
+				assertEquals(i, EventQueue.offset(event));
+				assertTrue(queue.offer(EventQueue.TRIGGER, i, i), "Space should free up as events are read");
+			}
+		assertEquals(queue.capacity(), queue.size());
+		int[][] rounded = {{1, 2}, {2, 2}, {3, 4}, {4, 4}, {8, 8}, {9, 16}}; // asked, held
+		for (int[] c : rounded)
+			assertEquals(c[1], new EventQueue(c[0]).capacity(), "capacity " + c[0]);
+	}
+
+	/** a fresh FM drum, no noise: two of them render the same samples */
+	private static FMOsc fm() {
+		DrumSetup setup = new DrumSetup(DrumType.Snare, new GainT(1, 1, 0.5f, 0.5f), new Postage(10, 100),
+				new Freqs(new Coord(20, 1), new FilterT(440, 1, 1), new Coord(10000, 1)), new Hz(220), new String[] {"Algo"});
+		OpSetup[] ops = new OpSetup[DX9.OP_COUNT];
+		for (int i = 0; i < ops.length; i++)
+			ops[i] = new OpSetup(0.9f, 0f, 1f + i, new Postage(10, 200), Shape.SIN);
+		FMOsc result = new FMOsc(setup, new FMOscSetup(DX9.getAlgorithms()[6], ops), new Actives(null, 0));
+		result.setFundamental(220);
+		return result;
+	}
+
+	/** blocks of the drum triggered at the top of the first, left channel */
+	private float[] unscheduled(Drum drum, int blocks) {
+		float[] result = new float[blocks * N];
+		drum.trigger(null);
+		for (int b = 0; b < blocks; b++) {
+			Arrays.fill(sumL, 0f);
+			Arrays.fill(sumR, 0f);
+			drum.process(sumL, sumR);
+			System.arraycopy(sumL, 0, result, b * N, N);
+		}
+		return result;
+	}
+
+	private float[] scheduled(ScheduledDrum voice, int offset, int blocks) {
+		float[] result = new float[blocks * N];
+		voice.trigger(offset);
+		for (int b = 0; b < blocks; b++) {
+			Arrays.fill(sumL, 0f);
+			Arrays.fill(sumR, 0f);
+			voice.process(sumL, sumR);
+			System.arraycopy(sumL, 0, result, b * N, N);
+		}
+		return result;
+	}
+
+	/** the scheduled hit is the unscheduled one delayed by offset, sample for sample, across block boundaries */
+	private void assertShifted(int offset, int blocks) {
+		float[] dry = unscheduled(fm(), blocks);
+		float[] wet = scheduled(new ScheduledDrum(fm(), N), offset, blocks);
+		assertTrue(energy(dry, 0, dry.length - offset) > 0, "reference should sound");
+		assertArrayEquals(new float[offset], Arrays.copyOf(wet, offset), 0f, "silent before " + offset);
+		assertArrayEquals(Arrays.copyOf(dry, dry.length - offset), Arrays.copyOfRange(wet, offset, wet.length), 0f,
+				"shifted by " + offset);
+	}
+
+	@Test
+	void testTriggerLandsAtOffset() {
+		ScheduledDrum voice = new ScheduledDrum(fm(), N);
+		voice.process(sumL, sumR);
+		assertEquals(-1, firstSound(sumL), "Nothing scheduled, nothing heard");
+		assertShifted(N / 3, 3);
+	}
+
+	@Test
+	void testTailCarriesIntoNextBlock() {
+		assertShifted(N - 8, 3);
+		assertShifted(1, 2);
+		assertShifted(0, 2);
+	}
+
+	@Test
+	void testRetriggerCutsAtOffset() {
+		ScheduledDrum voice = new ScheduledDrum(new Ride(new Actives(null, 0)), N);
+		voice.trigger(0);
+		voice.trigger(N / 2);
+		voice.process(sumL, sumR);
+		assertTrue(energy(sumL, 0, N / 2) > 0, "First hit should sound up to the second");
+		assertTrue(energy(sumL, N / 2, N) > 0, "Second hit should sound from its offset");
+	}
+
+	/** @return index of the first non-zero sample, -1 if silent */
+	private static int firstSound(float[] buf) {
+		for (int i = 0; i < buf.length; i++)
+			if (buf[i] != 0f)
+				return i;
+		return -1;
+	}
+
+	private static double energy(float[] buf, int from, int to) {
+		double sum = 0;
+		for (int i = from; i < to; i++)
+			sum += buf[i] * buf[i];
+		return sum;
+	}
+
+}
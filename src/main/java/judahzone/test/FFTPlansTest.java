@@ -0,0 +1,147 @@
+package judahzone.test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import be.tarsos.dsp.util.fft.FFT;
+import be.tarsos.dsp.util.fft.HammingWindow;
+import be.tarsos.dsp.util.fft.HannWindow;
+import judahzone.dev.FFTPlans;
+import judahzone.dev.FFTPlans.Plan;
+
+/** Shared FFT plans: one per (size, window), matching a private Tarsos FFT. */
+public class FFTPlansTest {
+
+	private static final int N = 2048;
+
+	@Test
+	void testSharedPerSizeAndWindow() {
+		Plan rect = FFTPlans.get(N);
+		Plan hamming = FFTPlans.get(N, HammingWindow.class);
+		assertSame(rect, FFTPlans.get(N));
+		assertSame(hamming, FFTPlans.get(N, HammingWindow.class));
+		assertNotSame(hamming, FFTPlans.get(N, HannWindow.class));
+		assertNotSame(rect, FFTPlans.get(N / 2));
+		assertSame(rect.fft(), hamming.fft(), "one set of twiddles per size");
+		assertSame(FFTPlans.fft(N), rect.fft());
+		assertFalse(rect.isWindowed());
+		assertEquals(1f, rect.window(N / 3));
+		assertThrows(IllegalArgumentException.class, () -> FFTPlans.fft(1));
+	}
+
+	@Test
+	void testMatchesPrivateFFT() {
+		float[] expected = TestUtilities.noise(N, 1), actual = expected.clone();
+		new FFT(N, new HammingWindow()).forwardTransform(expected);
+		FFTPlans.get(N, HammingWindow.class).forwardTransform(actual);
+		assertArrayEquals(expected, actual, 0f);
+
+		float[] amps = new float[N / 2], privateAmps = new float[N / 2];
+		float[] audio = TestUtilities.noise(N, 2), copy = audio.clone();
+		FFTPlans.get(N, HammingWindow.class).magnitudes(audio, 0, amps);
+		assertArrayEquals(copy, audio, 0f, "source untouched");
+		FFT own = new FFT(N, new HammingWindow());
+		own.forwardTransform(copy);
+		own.modulus(copy, privateAmps);
+		assertArrayEquals(privateAmps, amps, 0f);
+	}
+
+	@Test
+	void testConcurrentUse() throws Exception {
+		final Plan plan = FFTPlans.get(N, HannWindow.class);
+		final float[] audio = TestUtilities.noise(N, 3);
+		final float[] expected = new float[N / 2];
+		plan.magnitudes(audio, 0, expected);
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		try {
+			@SuppressWarnings("unchecked")
+			Future<float[]>[] results = new Future[8];
+			for (int t = 0; t < results.length; t++)
+				results[t] = pool.submit(() -> {
+					float[] amps = new float[N / 2];
+					for (int i = 0; i < 50; i++)
+						FFTPlans.get(N, HannWindow.class).magnitudes(audio, 0, amps);
+					return amps;
+				});
+			for (Future<float[]> f : results)
+				assertArrayEquals(expected, f.get(), 0f);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	void testZeroPaddedWindow() {
+		Plan padded = FFTPlans.get(N * 2, N, HammingWindow.class);
+		assertEquals(N, padded.length());
+		float[] audio = TestUtilities.noise(N, 5), copy = audio.clone();
+		float[] buffer = Arrays.copyOf(TestUtilities.noise(N, 6), N * 4); // garbage where the padding goes
+		Arrays.fill(buffer, N * 2, N * 4, 7f);
+		padded.forwardTransform(audio, 0, buffer);
+		assertArrayEquals(copy, audio, 0f, "source untouched");
+
+		float[] expected = new float[N * 2];
+		float[] curve = new HammingWindow().generateCurve(N); // over the signal, not the transform
+		for (int i = 0; i < N; i++)
+			expected[i] = copy[i] * curve[i];
+		new FFT(N * 2).forwardTransform(expected);
+		assertArrayEquals(expected, Arrays.copyOf(buffer, N * 2), 0f);
+		assertEquals(7f, buffer[N * 3], "past size untouched");
+
+		float[] inPlace = Arrays.copyOf(copy, N * 2);
+		Arrays.fill(inPlace, N, N * 2, 3f);
+		padded.forwardTransform(inPlace);
+		assertArrayEquals(expected, inPlace, 0f, "in place pads too");
+		assertThrows(IllegalArgumentException.class, () -> FFTPlans.get(N, N + 1, null));
+	}
+
+	@Test
+	void testPaddingSharpensPeak() {
+		final float hz = 440f, sr = 48000f;
+		float[] tone = new float[N];
+		for (int i = 0; i < N; i++)
+			tone[i] = (float) Math.sin(2 * Math.PI * hz * i / sr);
+		float[] coarse = new float[N / 2], fine = new float[N * 2];
+		FFTPlans.get(N, HannWindow.class).magnitudes(tone, 0, coarse);
+		FFTPlans.get(N * 4, N, HannWindow.class).magnitudes(tone, 0, fine);
+		assertEquals(hz, peak(fine) * sr / (N * 4), sr / (N * 4));
+		assertTrue(Math.abs(peak(fine) * sr / (N * 4) - hz) <= Math.abs(peak(coarse) * sr / N - hz));
+	}
+
+	private static int peak(float[] magnitudes) {
+		int result = 0;
+		for (int i = 1; i < magnitudes.length; i++)
+			if (magnitudes[i] > magnitudes[result])
+				result = i;
+		return result;
+	}
+
+	@RealTimeSafe(warmup = 2_000, iterations = 5_000)
+	void testPaddedTransformRealTimeSafe(RealTime rt) {
+		final Plan plan = FFTPlans.get(2048, 1024, HammingWindow.class);
+		final float[] audio = TestUtilities.noise(N, 7), buffer = new float[2048];
+		rt.measure("fftPlans.forwardTransform, padded", () -> plan.forwardTransform(audio, 0, buffer));
+		assertTrue(Float.isFinite(buffer[10]));
+	}
+
+	@RealTimeSafe(warmup = 2_000, iterations = 5_000)
+	void testMagnitudesRealTimeSafe(RealTime rt) {
+		final Plan plan = FFTPlans.get(1024, HammingWindow.class);
+		final float[] audio = TestUtilities.noise(N, 4), amps = new float[512];
+		rt.measure("fftPlans.magnitudes", () -> plan.magnitudes(audio, 0, amps));
+		assertTrue(Float.isFinite(amps[10]));
+	}
+
+}
@@ -1,5 +1,6 @@
 package judahzone.test;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -17,6 +18,8 @@ import be.tarsos.dsp.pitch.PitchProcessor.PitchEstimationAlgorithm;
 import judahzone.api.Hz;
 import judahzone.data.Postage;
 import judahzone.data.Shape;
+import judahzone.dev.FMBlock;
+import judahzone.dev.FMKernel;
 import judahzone.filter.Coord;
 import judahzone.filter.FilterT;
 import judahzone.fx.Gain.GainT;
@@ -49,6 +52,8 @@ public class FMTest extends DrumTest {
 			.getDetector(Constants.sampleRate(), Constants.bufSize());
 
 	private static final int bufSize = 256;
+	/** block phase (start + i * step) against FMOsc's running sum, and the band-limited tables, differ in the last bits */
+	private static final float FM_TOLERANCE = 1e-3f;
 
 	@BeforeEach
 	void init() {
@@ -262,6 +267,101 @@ public class FMTest extends DrumTest {
 		}
 	}
 
+	@Test
+	void testBlockEngineAlgorithms() {
+		for (int algoIdx = 0; algoIdx < DX9.ALGO_COUNT; algoIdx++) {
+			FMBlock block = new FMBlock(DX9.getAlgorithms()[algoIdx], sumL.length);
+			for (int op = 0; op < block.getOpCount(); op++)
+				block.setOp(op, 0.9f, algoIdx % 2 == 0 ? 0.5f : 0f, 1f, new Postage(10, 40), Shape.SIN);
+			block.setFundamental(220);
+
+			Arrays.fill(sumL, 0f);
+			Arrays.fill(sumR, 0f);
+			block.trigger();
+			block.process(sumL, sumR);
+			float rms = AudioMetrics.rms(sumL);
+
+			assertTrue(rms > EPS, "Block algorithm " + algoIdx + " (" + DX9.names[algoIdx] + ") should produce audio; RMS=" + rms);
+			for (float s : sumL)
+				assertTrue(Float.isFinite(s), "Block sample should be finite; got " + s);
+		}
+	}
+
+	/** FMOsc, evaluating every operator per sample, against a block engine over the same operators */
+	private void assertMatchesFMOsc(Algorithm algo, FMBlock engine, String name) {
+		final int opCount = engine.getOpCount();
+		OpSetup[] ops = new OpSetup[opCount];
+		for (int op = 0; op < opCount; op++) {
+			ops[op] = new OpSetup(0.9f, algo.feedbackFlags()[op] ? 0.3f : 0f, 1f + op, new Postage(2, 60), Shape.SIN);
+			engine.setOp(op, ops[op].level(), ops[op].fb(), ops[op].ratio(), ops[op].env(), ops[op].shape());
+		}
+		FMOsc reference = new FMOsc(setup, new FMOscSetup(algo, ops), mine);
+		reference.setFundamental(220);
+		engine.setFundamental(220);
+		reference.trigger(null);
+		engine.trigger();
+
+		float[] expected = new float[bufSize], actual = new float[bufSize], right = new float[bufSize];
+		for (int frame = 0; frame < 6; frame++) {
+			Arrays.fill(expected, 0f);
+			Arrays.fill(actual, 0f);
+			reference.process(expected, right);
+			engine.process(actual, right);
+			assertArrayEquals(expected, actual, FM_TOLERANCE, name + " frame " + frame);
+		}
+	}
+
+	@Test
+	void testBlockEngineMatchesFMOsc() {
+		for (int algoIdx = 0; algoIdx < DX9.ALGO_COUNT; algoIdx++) {
+			Algorithm algo = DX9.getAlgorithms()[algoIdx];
+			assertMatchesFMOsc(algo, new FMBlock(algo, bufSize), "DX9 algorithm " + algoIdx);
+		}
+		for (int preset = 1; preset <= DX7.names.length; preset++) {
+			Algorithm algo = DX7.get(preset);
+			assertMatchesFMOsc(algo, new FMBlock(algo, bufSize), "DX7 preset " + preset);
+		}
+	}
+
+	@Test
+	void testCompiledKernelMatchesFMOsc() {
+		for (int algoIdx = 0; algoIdx < DX9.ALGO_COUNT; algoIdx++) {
+			Algorithm algo = DX9.getAlgorithms()[algoIdx];
+			assertMatchesFMOsc(algo, new FMKernel(algo, bufSize), "DX9 algorithm " + algoIdx + ", compiled");
+		}
+		for (int preset = 1; preset <= DX7.names.length; preset++) {
+			Algorithm algo = DX7.get(preset);
+			assertMatchesFMOsc(algo, new FMKernel(algo, bufSize), "DX7 preset " + preset + ", compiled");
+		}
+	}
+
+	@Test
+	void testCompiledKernelMatchesBlockEngine() {
+		for (int preset = 1; preset <= DX7.names.length; preset++) {
+			Algorithm algo = DX7.get(preset);
+			FMBlock block = new FMBlock(algo, bufSize);
+			FMKernel kernel = new FMKernel(algo, bufSize);
+			for (int op = 0; op < DX7.OP_COUNT; op++) {
+				block.setOp(op, 0.9f, 0.3f, 1f + op, new Postage(10, 40), Shape.SIN);
+				kernel.setOp(op, 0.9f, 0.3f, 1f + op, new Postage(10, 40), Shape.SIN);
+			}
+			block.setFundamental(220);
+			kernel.setFundamental(220);
+			block.trigger();
+			kernel.trigger();
+
+			float[] expected = new float[bufSize];
+			float[] actual = new float[bufSize];
+			for (int frame = 0; frame < 4; frame++) {
+				Arrays.fill(expected, 0f);
+				Arrays.fill(actual, 0f);
+				block.process(expected, sumR);
+				kernel.process(actual, sumR);
+				assertArrayEquals(expected, actual, "Preset " + preset + " frame " + frame);
+			}
+		}
+	}
+
 	@Test
 	void testWaveformShapes() {
 		Shape[] shapes = { Shape.SIN, Shape.TRI, Shape.SAW, /* Shape.SQR, removed from FM synth DC */ Shape.RND};
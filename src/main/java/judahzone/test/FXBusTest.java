@@ -0,0 +1,58 @@
+package judahzone.test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+
+import judahzone.api.FX;
+import judahzone.fx.Chorus;
+import judahzone.fx.Compressor;
+import judahzone.fx.CutFilter;
+import judahzone.fx.Delay;
+import judahzone.fx.EQ;
+import judahzone.fx.Freeverb;
+import judahzone.fx.Gain;
+import judahzone.fx.Overdrive;
+import judahzone.fx.op.FXBus;
+import judahzone.util.Constants;
+
+/** The full channel strip, every effect engaged, must not allocate on the audio thread. */
+public class FXBusTest {
+
+	private static final int N_FRAMES = Constants.bufSize();
+
+	private final float[] left = new float[N_FRAMES];
+	private final float[] right = new float[N_FRAMES];
+	private FXBus bus;
+
+	@BeforeEach
+	void setup() {
+		bus = new FXBus(
+			new Gain(),
+			new EQ(),
+			new CutFilter(true),    // hiCut
+			new CutFilter(false),   // loCut
+			new Compressor(),
+			new Delay(),
+			new Overdrive(),
+			new Chorus(),
+			new Freeverb()
+		);
+		for (FX fx : bus.listAll())
+			bus.setActive(fx, true);
+	}
+
+	@RealTimeSafe(warmup = 2_000, iterations = 5_000)
+	void testProcessRealTimeSafe(RealTime rt) {
+		rt.measure("fxBus.process", () -> {
+			for (int i = 0; i < N_FRAMES; i++) {
+				left[i] = (i & 1) == 0 ? 0.3f : -0.3f;
+				right[i] = -left[i];
+			}
+			bus.process(left, right);
+		});
+		for (int i = 0; i < N_FRAMES; i++)
+			assertTrue(Float.isFinite(left[i]) && Float.isFinite(right[i]), "Bus output not finite at " + i);
+	}
+
+}
@@ -88,4 +88,13 @@ public class FractionalDelayTest {
 //		float delta = Math.abs(next - last);
 //		assertTrue(delta < 0.05f, "Small tap step caused large discontinuity: " + delta);
 //	}
+
+	@RealTimeSafe(warmup = 50_000, iterations = 100_000)
+	void testProcessRealTimeSafe(RealTime rt) {
+		delay.reset();
+		delay.setDelaySamples(32.3f);
+		final float[] last = new float[1];
+		rt.measure("pluckDelay.process", () -> last[0] = delay.process(last[0] * 0.5f + 0.1f, 0.9f, 0.05f));
+		assertTrue(Float.isFinite(last[0]));
+	}
 }
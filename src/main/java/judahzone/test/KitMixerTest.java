@@ -0,0 +1,94 @@
+package judahzone.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import judahzone.dev.KitMixer;
+import judahzone.util.AudioMetrics;
+import judahzone.util.Constants;
+import net.judah.drums.noise.Ride;
+import net.judah.midi.Actives;
+
+/** Silent voices of a kit should never be processed. */
+public class KitMixerTest {
+
+	private static final int VOICES = 8;
+	private static final int MAX_BLOCKS = 10_000;
+	private final float[] sumL = new float[Constants.bufSize()];
+	private final float[] sumR = new float[Constants.bufSize()];
+
+	private final int[] calls = new int[VOICES];
+	private KitMixer kit;
+
+	class Counted extends Ride {
+		final int idx;
+		Counted(int idx) {
+			super(new Actives(null, 0));
+			this.idx = idx;
+		}
+		@Override public void process(float[] left, float[] right) {
+			calls[idx]++;
+			super.process(left, right);
+		}
+	}
+
+	@BeforeEach
+	void init() {
+		Arrays.fill(calls, 0);
+		Ride[] voices = new Ride[VOICES];
+		for (int i = 0; i < VOICES; i++)
+			voices[i] = new Counted(i);
+		kit = new KitMixer(voices);
+	}
+
+	@Test
+	void testIdleKitCostsNothing() {
+		for (int i = 0; i < 100; i++)
+			kit.process(sumL, sumR);
+		assertEquals(0, kit.active());
+		for (int c : calls)
+			assertEquals(0, c, "Idle voices should be skipped");
+		assertTrue(AudioMetrics.rms(sumL) < DrumTest.RMS_TOLERANCE, "Idle kit should be silent");
+	}
+
+	@Test
+	void testOnlyTriggeredVoiceProcessed() {
+		final int hat = 5;
+		kit.trigger(hat);
+		assertTrue(kit.isActive(hat));
+		assertEquals(1, kit.active());
+		kit.process(sumL, sumR);
+		assertTrue(AudioMetrics.rms(sumL) > DrumTest.EPS, "Triggered voice should be heard");
+		for (int i = 0; i < VOICES; i++)
+			assertEquals(i == hat ? 1 : 0, calls[i], "voice " + i);
+	}
+
+	@Test
+	void testVoiceRetiresWhenIdle() {
+		kit.trigger(0);
+		kit.trigger(3);
+		assertEquals(2, kit.active());
+		int blocks = 0;
+		while (kit.active() > 0) {
+			kit.process(sumL, sumR);
+			if (++blocks > MAX_BLOCKS)
+				fail("Voices never went idle");
+		}
+		assertFalse(kit.get(0).isSounding());
+		assertFalse(kit.get(3).isSounding());
+		int processed = calls[0];
+		kit.process(sumL, sumR);
+		assertEquals(processed, calls[0], "Retired voice should not be processed again");
+
+		kit.trigger(0);
+		assertTrue(kit.isActive(0), "Retrigger should re-arm the voice");
+	}
+
+}
@@ -0,0 +1,93 @@
+package judahzone.test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import judahzone.dev.BiquadCascade;
+import judahzone.dev.KitDB;
+import judahzone.dev.KitDB.KitSetup;
+import judahzone.dev.KitPreloader;
+import judahzone.dev.KitPreloader.Prepared;
+
+/** Off-thread kit builds: swap() installs what was prepared, a newer preload supersedes an older one. */
+public class KitPreloaderTest {
+
+	/** block until the worker has published, the audio thread would simply keep polling swap() */
+	private static void awaitPending(KitPreloader<?> preloader) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (!preloader.isPending()) {
+			assertTrue(System.nanoTime() < deadline, "worker never published");
+			Thread.sleep(1);
+		}
+	}
+
+	@Test
+	void testSwapInstallsPreparedKit() throws Exception {
+		KitSetup kit = KitDB.get("default", false);
+		try (KitPreloader<Prepared> preloader = new KitPreloader<>(Prepared::prepare, null)) {
+			assertNull(preloader.swap(), "nothing prepared yet");
+			preloader.preload(kit);
+			awaitPending(preloader);
+			assertNull(preloader.current(), "installed only at swap()");
+
+			Prepared installed = preloader.swap();
+			assertNotNull(installed);
+			assertSame(installed, preloader.current());
+			assertFalse(preloader.isPending());
+			assertSame(installed, preloader.swap(), "kept until the next preload");
+
+			assertSame(kit, installed.kit());
+			assertEquals(kit.env().length, installed.env().length);
+			assertEquals(kit.body().length, installed.filter().length);
+			for (int i = 0; i < installed.filter().length; i++) {
+				BiquadCascade expected = BiquadCascade.band(kit.lowCut()[i], kit.body()[i], kit.hiCut()[i]);
+				for (int s = 0; s < expected.getSections(); s++)
+					assertArrayEquals(expected.getCoefficients(s), installed.filter()[i].getCoefficients(s), 0f,
+							"voice " + i + " section " + s);
+			}
+		}
+	}
+
+	@Test
+	void testNewerPreloadSupersedes() throws Exception {
+		KitSetup first = KitDB.get(0, false), skipped = KitDB.get(1, false), last = KitDB.get(2, false);
+		CountDownLatch started = new CountDownLatch(1), release = new CountDownLatch(1);
+		List<KitSetup> built = new CopyOnWriteArrayList<>();
+		try (KitPreloader<KitSetup> preloader = new KitPreloader<>(kit -> {
+				if (kit == first) {
+					started.countDown();
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				built.add(kit);
+				return kit;
+			}, null)) {
+			preloader.preload(first);
+			assertTrue(started.await(10, TimeUnit.SECONDS));
+			preloader.preload(skipped); // queued behind first
+			preloader.preload(last);
+			release.countDown();
+			awaitPending(preloader);
+			assertSame(last, preloader.swap());
+			assertEquals(List.of(first, last), built, "first finished but was dropped, skipped never built");
+			assertFalse(preloader.isPending());
+			assertSame(last, preloader.current());
+		}
+	}
+
+}
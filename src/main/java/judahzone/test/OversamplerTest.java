@@ -0,0 +1,178 @@
+package judahzone.test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import judahzone.dev.Oversampler;
+import judahzone.dev.Oversampler.Mode;
+import judahzone.dev.Oversampler.Stage;
+
+/** Half-band cascades: image rejection, round trip gain and latency, block independence, and the point of it all,
+ *  less aliasing from a clipper. */
+public class OversamplerTest {
+
+	private static final int N = 4096;
+	private static final int[] FACTORS = {2, 4, 8};
+
+	private static float[] sine(int n, double f, double amp) {
+		float[] result = new float[n];
+		for (int i = 0; i < n; i++)
+			result[i] = (float) (amp * Math.sin(2 * Math.PI * f * i));
+		return result;
+	}
+
+	/** Hann windowed single-bin DFT, amplitude of a sine at f cycles per sample */
+	private static double amplitude(float[] x, int n, double f) {
+		double re = 0, im = 0;
+		for (int i = 0; i < n; i++) {
+			double w = 0.5 - 0.5 * Math.cos(2 * Math.PI * i / n);
+			re += w * x[i] * Math.cos(2 * Math.PI * f * i);
+			im += w * x[i] * Math.sin(2 * Math.PI * f * i);
+		}
+		return 4 * Math.hypot(re, im) / n;
+	}
+
+	private static double db(double amp) {
+		return 20 * Math.log10(amp + 1e-12);
+	}
+
+	@Test
+	void testImageRejection() {
+		for (Mode mode : Mode.values())
+			for (int factor : FACTORS) {
+				Oversampler os = new Oversampler(factor, mode, N);
+				for (double f : new double[] {0.05, 0.2, 0.4}) {
+					float[] in = sine(N, f, 1);
+					os.reset();
+					os.up(in, N); // settle
+					float[] hi = os.up(in, N);
+					assertEquals(1, amplitude(hi, N * factor, f / factor), 0.01, mode + " x" + factor + " passband at " + f);
+					for (int k = 1; k < factor; k++) {
+						double image = Math.max(amplitude(hi, N * factor, (k - f) / factor), amplitude(hi, N * factor, (k + f) / factor));
+						assertTrue(db(image) < -70, mode + " x" + factor + " image at " + f + ": " + db(image) + " dB");
+					}
+				}
+			}
+	}
+
+	@Test
+	void testDownsampleRejectsAliases() {
+		for (Mode mode : Mode.values())
+			for (int factor : FACTORS) {
+				Oversampler os = new Oversampler(factor, mode, N);
+				double f = 0.1; // high-rate content at 1 - f base units would fold onto f
+				float[] hi = sine(N * factor, (1 - f) / factor, 1);
+				float[] out = new float[N];
+				os.down(hi, out, N);
+				os.down(hi, out, N);
+				assertTrue(db(amplitude(out, N, f)) < -70, mode + " x" + factor + " alias " + db(amplitude(out, N, f)));
+			}
+	}
+
+	@Test
+	void testLinearRoundTripIsPureDelay() {
+		final double f = 0.03;
+		for (int factor : FACTORS) {
+			Oversampler os = new Oversampler(factor, Mode.LINEAR, N);
+			float[] buf = sine(N, f, 0.5);
+			os.process(buf, N, (hi, len) -> { });
+			double lat = os.latency();
+			for (int i = 200; i < N; i++)
+				assertEquals(0.5 * Math.sin(2 * Math.PI * f * (i - lat)), buf[i], 1e-3, "x" + factor + " sample " + i);
+		}
+	}
+
+	@Test
+	void testMinimumRoundTripKeepsLevel() {
+		for (int factor : FACTORS) {
+			Oversampler os = new Oversampler(factor, Mode.MINIMUM, N);
+			for (double f : new double[] {0.01, 0.1, 0.3}) {
+				os.reset();
+				float[] buf = sine(N, f, 1);
+				os.process(buf, N, (hi, len) -> { });
+				assertEquals(1, amplitude(buf, N, f), 0.01, "x" + factor + " at " + f);
+			}
+		}
+	}
+
+	@Test
+	void testBlockSizeDoesNotChangeOutput() {
+		final Stage clip = (hi, len) -> {
+			for (int i = 0; i < len; i++)
+				hi[i] = Math.max(-0.5f, Math.min(0.5f, hi[i]));
+		};
+		for (Mode mode : Mode.values()) {
+			float[] whole = sine(N, 0.07, 1);
+			float[] pieces = whole.clone();
+			new Oversampler(4, mode, N).process(whole, N, clip);
+			Oversampler small = new Oversampler(4, mode, 100);
+			float[] block = new float[100];
+			for (int i = 0; i < N; i += 100) {
+				int len = Math.min(100, N - i);
+				System.arraycopy(pieces, i, block, 0, len);
+				small.process(block, len, clip);
+				System.arraycopy(block, 0, pieces, i, len);
+			}
+			assertArrayEquals(whole, pieces, 1e-6f, mode.name());
+		}
+	}
+
+	@Test
+	void testOversampledClipperAliasesLess() {
+		// ~10.6k at 48k: the 3rd harmonic folds back to 0.31, the 5th to 0.15
+		final double f = 0.23;
+		final Stage clip = (hi, len) -> {
+			for (int i = 0; i < len; i++)
+				hi[i] = Math.max(-0.3f, Math.min(0.3f, hi[i]));
+		};
+		float[] plain = sine(N, f, 1);
+		clip.process(plain, N);
+		double before = Math.max(amplitude(plain, N, 1 - 3 * f), amplitude(plain, N, 5 * f - 1));
+		for (Mode mode : Mode.values())
+			for (int factor : new int[] {4, 8}) {
+				Oversampler os = new Oversampler(factor, mode, N);
+				float[] buf = sine(N, f, 1);
+				os.process(buf, N, clip);
+				buf = sine(N, f, 1);
+				os.process(buf, N, clip);
+				double after = Math.max(amplitude(buf, N, 1 - 3 * f), amplitude(buf, N, 5 * f - 1));
+				assertTrue(db(after) < db(before) - 40, mode + " x" + factor + " " + db(before) + " -> " + db(after) + " dB");
+			}
+	}
+
+	@Test
+	void testFactorOneIsPassThrough() {
+		Oversampler os = new Oversampler(1, Mode.LINEAR, N);
+		float[] buf = sine(N, 0.1, 1);
+		float[] copy = buf.clone();
+		os.process(buf, N, (hi, len) -> { });
+		assertArrayEquals(copy, buf);
+		assertEquals(0f, os.latency());
+		assertThrows(IllegalArgumentException.class, () -> new Oversampler(3, Mode.LINEAR));
+		assertThrows(IllegalArgumentException.class, () -> os.up(new float[N + 1], N + 1));
+	}
+
+	@RealTimeSafe(warmup = 5_000, iterations = 10_000)
+	void testProcessRealTimeSafe(RealTime rt) {
+		final float[] buf = new float[64];
+		Arrays.fill(buf, 0.25f);
+		final Oversampler linear = new Oversampler(8, Mode.LINEAR, buf.length);
+		final Oversampler minimum = new Oversampler(8, Mode.MINIMUM, buf.length);
+		final Stage square = (hi, len) -> {
+			for (int i = 0; i < len; i++)
+				hi[i] *= hi[i];
+		};
+		Bench.assertBaseline(rt.measure("oversampler.process", () -> {
+			linear.process(buf, square);
+			minimum.process(buf, square);
+		}));
+		assertTrue(Float.isFinite(buf[0]));
+	}
+
+}
@@ -0,0 +1,195 @@
+package judahzone.test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+
+import judahzone.dev.PartitionedConvolver;
+import judahzone.dev.PartitionedConvolver.Uniform;
+
+/** Partitioned convolution against direct time-domain convolution. */
+public class PartitionedConvolverTest {
+
+	private static final int BLOCK = 64;
+	private static final float TOLERANCE = 1e-4f;
+
+	/** decaying noise IR, peak well under 1 so sums stay small */
+	private static float[] ir(int n, long seed) {
+		float[] result = TestUtilities.noise(n, seed);
+		for (int i = 0; i < n; i++)
+			result[i] *= 0.05f * (float) Math.exp(-3.0 * i / n);
+		return result;
+	}
+
+	private static float[] direct(float[] x, float[] h) {
+		float[] y = new float[x.length];
+		for (int t = 0; t < x.length; t++) {
+			double sum = 0;
+			for (int j = 0, end = Math.min(t, h.length - 1); j <= end; j++)
+				sum += h[j] * x[t - j];
+			y[t] = (float) sum;
+		}
+		return y;
+	}
+
+	private static float[] run(PartitionedConvolver conv, float[] x, boolean waitForTail) {
+		float[] y = new float[x.length];
+		float[] in = new float[BLOCK], out = new float[BLOCK];
+		for (int off = 0; off < x.length; off += BLOCK) {
+			System.arraycopy(x, off, in, 0, BLOCK);
+			while (waitForTail && !conv.tailReady())
+				Thread.onSpinWait();
+			conv.process(in, out);
+			System.arraycopy(out, 0, y, off, BLOCK);
+		}
+		return y;
+	}
+
+	@Test
+	void testUniformMatchesDirect() {
+		float[] h = ir(1000, 1); // not a whole number of partitions
+		float[] x = TestUtilities.noise(BLOCK * 40, 2);
+		Uniform uniform = new Uniform(h, 0, h.length, BLOCK);
+		assertEquals(16, uniform.getPartitions());
+		float[] y = new float[x.length];
+		for (int off = 0; off < x.length; off += BLOCK)
+			uniform.process(x, off, y, off);
+		assertArrayEquals(direct(x, h), y, TOLERANCE);
+	}
+
+	@Test
+	void testImpulseReturnsIR() {
+		float[] h = ir(3000, 3);
+		float[] x = new float[BLOCK * 60];
+		x[0] = 1f;
+		try (PartitionedConvolver conv = new PartitionedConvolver(h, BLOCK, 4, false)) {
+			assertTrue(conv.hasTail());
+			float[] y = run(conv, x, false);
+			for (int i = 0; i < h.length; i++)
+				assertEquals(h[i], y[i], TOLERANCE, "sample " + i);
+			for (int i = h.length; i < y.length; i++)
+				assertEquals(0f, y[i], TOLERANCE, "sample " + i);
+		}
+	}
+
+	@Test
+	void testHeadAndTailMatchDirect() {
+		float[] h = ir(5000, 4);
+		float[] x = TestUtilities.noise(BLOCK * 150, 5);
+		float[] expected = direct(x, h);
+		for (int factor : new int[] {1, 2, 8}) {
+			try (PartitionedConvolver conv = new PartitionedConvolver(h, BLOCK, factor, false)) {
+				assertArrayEquals(expected, run(conv, x, false), TOLERANCE, "tail factor " + factor);
+			}
+		}
+	}
+
+	@Test
+	void testShortIRHasNoTail() {
+		float[] h = ir(300, 6);
+		float[] x = TestUtilities.noise(BLOCK * 20, 7);
+		try (PartitionedConvolver conv = new PartitionedConvolver(h, BLOCK, 4, true)) {
+			assertFalse(conv.hasTail());
+			assertArrayEquals(direct(x, h), run(conv, x, false), TOLERANCE);
+		}
+	}
+
+	@Test
+	void testBackgroundTailMatchesDirect() {
+		float[] h = ir(6000, 8);
+		float[] x = TestUtilities.noise(BLOCK * 200, 9);
+		try (PartitionedConvolver conv = new PartitionedConvolver(h, BLOCK, 4, true)) {
+			assertArrayEquals(direct(x, h), run(conv, x, true), TOLERANCE);
+			assertEquals(0, conv.getLate());
+			conv.reset();
+			assertArrayEquals(direct(x, h), run(conv, x, true), TOLERANCE, "after reset");
+		}
+	}
+
+	/** threaded, but the worker is held back until block hold has been processed, then waited for each block */
+	private static float[] late(PartitionedConvolver[] conv, float[] h, float[] x, int factor, int hold) {
+		final CountDownLatch gate = new CountDownLatch(1);
+		conv[0] = new PartitionedConvolver(h, BLOCK, factor, r -> new Thread(() -> {
+			try {
+				gate.await();
+			} catch (InterruptedException e) {
+				return;
+			}
+			r.run();
+		}));
+		float[] y = new float[x.length];
+		float[] in = new float[BLOCK], out = new float[BLOCK];
+		for (int b = 0, off = 0; off < x.length; b++, off += BLOCK) {
+			if (b == hold)
+				gate.countDown();
+			while (b >= hold && !conv[0].tailReady())
+				Thread.onSpinWait();
+			System.arraycopy(x, off, in, 0, BLOCK);
+			conv[0].process(in, out);
+			System.arraycopy(out, 0, y, off, BLOCK);
+		}
+		return y;
+	}
+
+	@Test
+	void testLateWorkerKeepsItsInput() {
+		final int factor = 4, large = BLOCK * factor;
+		float[] h = ir(6000, 12);
+		float[] x = TestUtilities.noise(BLOCK * 200, 13);
+		float[] expected;
+		try (PartitionedConvolver sync = new PartitionedConvolver(h, BLOCK, factor, false)) {
+			expected = run(sync, x, false);
+		}
+		PartitionedConvolver[] conv = new PartitionedConvolver[1];
+		// jobs 0 and 1 submitted and not started, halfway into the large block whose output needs job 0
+		float[] y = late(conv, h, x, factor, 2 * factor + 2);
+		try (PartitionedConvolver c = conv[0]) {
+			assertEquals(2, c.getLate());
+			assertEquals(0, c.getDropped());
+		}
+		final int missed = 2 * large, resumed = missed + 2 * BLOCK;
+		assertArrayEquals(Arrays.copyOf(expected, missed), Arrays.copyOf(y, missed), 0f, "before the worker fell behind");
+		assertArrayEquals(Arrays.copyOfRange(expected, resumed, x.length), Arrays.copyOfRange(y, resumed, x.length), 0f,
+				"tail input intact once the worker caught up");
+	}
+
+	@Test
+	void testFarBehindWorkerDropsInput() {
+		final int factor = 4, large = BLOCK * factor;
+		float[] h = ir(6000, 14);
+		float[] x = TestUtilities.noise(BLOCK * 200, 15);
+		float[] expected;
+		int partitions;
+		try (PartitionedConvolver sync = new PartitionedConvolver(h, BLOCK, factor, false)) {
+			expected = run(sync, x, false);
+		}
+		partitions = (h.length - 2 * large + large - 1) / large;
+		PartitionedConvolver[] conv = new PartitionedConvolver[1];
+		float[] y = late(conv, h, x, factor, 5 * factor + 1); // jobs 0-4 waiting, large blocks 3, 4 and 5 start unsafe
+		try (PartitionedConvolver c = conv[0]) {
+			assertEquals(3, c.getDropped());
+		}
+		for (float f : y)
+			assertTrue(Float.isFinite(f) && Math.abs(f) < 10, "bounded: " + f);
+		// dropped inputs leave the tail after its partitions, plus one for the overlap-save frame
+		final int clean = (5 + 2 + partitions + 1) * large;
+		assertTrue(clean < x.length);
+		assertArrayEquals(Arrays.copyOfRange(expected, clean, x.length), Arrays.copyOfRange(y, clean, x.length), 0f);
+	}
+
+	@RealTimeSafe(warmup = 5_000, iterations = 10_000)
+	void testProcessRealTimeSafe(RealTime rt) {
+		final float[] in = TestUtilities.noise(BLOCK, 10), out = new float[BLOCK];
+		try (PartitionedConvolver conv = new PartitionedConvolver(ir(4000, 11), BLOCK, 4, false)) {
+			rt.measure("partitionedConvolver.process", () -> conv.process(in, out));
+			assertTrue(Float.isFinite(out[0]));
+		}
+	}
+
+}
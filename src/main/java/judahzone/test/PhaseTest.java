@@ -6,6 +6,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import judahzone.dev.SineKernel;
 import judahzone.util.Phase;
 
 /** Validates phase accumulation, wrap-around, and retrigger blending continuity. */
@@ -74,4 +75,42 @@ public class PhaseTest {
 
 		assertTrue(mid > low && mid < high, "Linear interpolation failed to produce intermediate value");
 	}
+
+	@Test void testSineKernelAccuracy() {
+		final int steps = 100_000;
+		for (SineKernel kernel : SineKernel.values()) {
+			float tolerance = kernel == SineKernel.LINEAR_LUT ? 1e-5f : 1e-6f;
+			float max = 0;
+			for (int i = 0; i <= steps; i++) {
+				float phase = i / (float) steps;
+				max = Math.max(max, Math.abs(kernel.sin(phase) - (float) Math.sin(2 * Math.PI * phase)));
+			}
+			assertTrue(max < tolerance, kernel + " max error " + max);
+			assertEquals(0f, kernel.sin(0f), EPSILON);
+			assertEquals(1f, kernel.sin(0.25f), EPSILON);
+			assertEquals(-1f, kernel.sin(0.75f), EPSILON);
+			assertEquals(kernel.sin(0.3f), kernel.sin(2.3f), EPSILON, kernel + " should wrap");
+			assertEquals(kernel.sin(0.7f), kernel.sin(-0.3f), EPSILON, kernel + " should wrap negative phase");
+		}
+	}
+
+	@Test void testSineKernelLargePhase() {
+		for (SineKernel kernel : SineKernel.values())
+			for (float phase : new float[] {1e10f, -1e10f, 3e9f + 0.25f, Float.MAX_VALUE, -1e-9f}) {
+				float expected = (float) Math.sin(2 * Math.PI * (phase - Math.floor(phase)));
+				assertEquals(expected, kernel.sin(phase), 1e-5f, kernel + " at " + phase);
+			}
+	}
+
+	@Test void testSineKernelArray() {
+		float[] phases = new float[1000];
+		float[] out = new float[phases.length];
+		for (int i = 0; i < phases.length; i++)
+			phases[i] = i * 0.01237f - 3f;
+		for (SineKernel kernel : SineKernel.values()) {
+			kernel.sin(phases, out);
+			for (int i = 0; i < phases.length; i++)
+				assertEquals(kernel.sin(phases[i]), out[i], 0f, kernel + " array path differs at " + i);
+		}
+	}
 }
@@ -265,21 +265,16 @@ public class RampTest {
 		assertTrue(maxDelta < 0.02f, "Ramp should be smooth, max delta: " + maxDelta);
 	}
 
-	@Test
-	void testRTSafeNoAllocations() {
-		// Verify ramp.next() does not allocate by repeated calls
+	@RealTimeSafe(warmup = 20_000, iterations = 100_000)
+	void testRTSafeNoAllocations(RealTime rt) {
+		// ramp.next() must not allocate and should hold its baseline speed
 		ramp.set(0.5f);
 		ramp.set(0.0f);
 
-		long before = System.nanoTime();
-		for (int i = 0; i < 100_000; i++) {
+		Bench.assertBaseline(rt.measure("ramp.next", () -> {
 			ramp.next();
 			if (!ramp.isRamping())
 				ramp.set(0.5f);
-		}
-		long after = System.nanoTime();
-
-		double ms = (after - before) / 1_000_000.0;
-		assertTrue(ms < 50, "100k ramp iterations should be fast; took " + ms + "ms");
+		}));
 	}
 }
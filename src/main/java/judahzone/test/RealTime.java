@@ -0,0 +1,53 @@
+package judahzone.test;
+
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.ParameterContext;
+import org.junit.jupiter.api.extension.ParameterResolutionException;
+import org.junit.jupiter.api.extension.ParameterResolver;
+
+/** Handed to {@link RealTimeSafe} tests: runs a hot path warmed up, then fails on any allocation
+ *  made by the measured calls (see {@link Bench}). */
+public final class RealTime {
+
+	private final int warmup;
+	private final int iterations;
+
+	RealTime(int warmup, int iterations) {
+		this.warmup = warmup;
+		this.iterations = iterations;
+	}
+
+	/** warm up, measure, assert zero allocation
+	 * @return timing, for an optional {@link Bench#assertBaseline(Bench.Result)} */
+	public Bench.Result measure(String name, Runnable op) {
+		return measure(name, op, warmup, iterations);
+	}
+
+	public Bench.Result measure(String name, Runnable op, int warmupCalls, int measuredCalls) {
+		Bench.Result result = Bench.measure(name, op, warmupCalls, measuredCalls);
+		Bench.assertNoAllocation(result);
+		return result;
+	}
+
+	public int getWarmup() { return warmup; }
+
+	public int getIterations() { return iterations; }
+
+	/** Supplies the RealTime parameter, configured from the test's annotation. */
+	static final class Resolver implements ParameterResolver {
+
+		@Override
+		public boolean supportsParameter(ParameterContext param, ExtensionContext ctx) throws ParameterResolutionException {
+			return param.getParameter().getType() == RealTime.class;
+		}
+
+		@Override
+		public Object resolveParameter(ParameterContext param, ExtensionContext ctx) throws ParameterResolutionException {
+			RealTimeSafe config = ctx.getRequiredTestMethod().getAnnotation(RealTimeSafe.class);
+			if (config == null)
+				throw new ParameterResolutionException("RealTime requires @" + RealTimeSafe.class.getSimpleName());
+			return new RealTime(config.warmup(), config.iterations());
+		}
+	}
+
+}
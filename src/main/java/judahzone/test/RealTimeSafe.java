@@ -0,0 +1,31 @@
+package judahzone.test;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/** A test of an audio-thread code path: the test takes a {@link RealTime} parameter and hands it the
+ *  hot path, which is warmed up and then run with the thread's allocated bytes snapshotted around it.
+ *  Any allocation fails the test.
+ *  <pre>
+ *  &#64;RealTimeSafe
+ *  void testProcess(RealTime rt) {
+ *      rt.measure("comb.processMix", () -&gt; comb.processMix(in, out));
+ *  }</pre> */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Test
+@ExtendWith(RealTime.Resolver.class)
+public @interface RealTimeSafe {
+
+	/** calls before measuring, enough for the JIT to compile the path */
+	int warmup() default 10_000;
+
+	/** measured calls */
+	int iterations() default 10_000;
+
+}
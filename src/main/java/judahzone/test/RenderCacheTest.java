@@ -0,0 +1,109 @@
+package judahzone.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+import judahzone.dev.KitDB;
+import judahzone.dev.KitDB.KitSetup;
+import judahzone.dev.RenderCache;
+import judahzone.dev.RenderCache.Key;
+import judahzone.dev.RenderCache.OneShot;
+import judahzone.fx.Gain;
+import net.judah.drums.Drum;
+import net.judah.drums.noise.Ride;
+import net.judah.midi.Actives;
+
+/** Kit audition cache: keys by value, hits, least recently used eviction. */
+public class RenderCacheTest {
+
+	/** KitSetup voice index of the ride */
+	private static final int RIDE = 6;
+
+	/** builds a Ride, remembering every key it was asked for */
+	private static Function<Key, Drum> ride(List<Key> built) {
+		return key -> {
+			built.add(key);
+			return new Ride(new Actives(null, 0));
+		};
+	}
+
+	private static OneShot shot(int frames) {
+		return new OneShot(new float[frames], new float[frames]);
+	}
+
+	/** the same kit with one voice's gain changed */
+	private static KitSetup regain(KitSetup kit, int voice, float gain) {
+		Gain.GainT[] gains = kit.gains().clone();
+		Gain.GainT g = gains[voice];
+		gains[voice] = new Gain.GainT(g.preamp(), gain, g.pan(), g.width());
+		return new KitSetup(kit.name(), kit.choke(), gains, kit.env(), kit.lowCut(), kit.body(), kit.hiCut(),
+				kit.synth(), kit.fm(), kit.pluck(), kit.pitch());
+	}
+
+	@Test
+	void testHit() {
+		KitSetup kit = KitDB.get("default", false);
+		RenderCache cache = new RenderCache();
+		List<Key> built = new ArrayList<>();
+		Key key = RenderCache.key(kit, RIDE);
+		OneShot first = cache.get(key, ride(built));
+		assertTrue(first.frames() > 0, "Miss should render the drum");
+		assertEquals(List.of(key), built, "Drum built from the key it is cached under");
+		KitSetup copy = regain(kit, RIDE, kit.gains()[RIDE].gain()); // equal values, new instances
+		assertEquals(key, RenderCache.key(copy, RIDE));
+		assertSame(first, cache.get(RenderCache.key(copy, RIDE), ride(built)), "Equal setup should hit");
+		assertEquals(1, built.size(), "A hit builds nothing");
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	void testDistinctSetupsRenderSeparately() {
+		KitSetup kit = KitDB.get("default", false);
+		KitSetup louder = regain(kit, RIDE, kit.gains()[RIDE].gain() * 2);
+		Key a = RenderCache.key(kit, RIDE), b = RenderCache.key(louder, RIDE);
+		assertNotEquals(a, b);
+		assertNotEquals(RenderCache.key(kit, 1), RenderCache.key(kit, 2), "Voices of one kit differ");
+		RenderCache cache = new RenderCache();
+		List<Key> built = new ArrayList<>();
+		OneShot first = cache.get(a, ride(built));
+		assertNull(cache.get(b), "Another setup must not find the first render");
+		assertNotSame(first, cache.get(b, ride(built)));
+		assertEquals(List.of(a, b), built);
+		assertEquals(2, cache.size());
+	}
+
+	@Test
+	void testLeastRecentlyUsedEvicted() {
+		KitSetup kit = KitDB.get("default", false);
+		Key[] keys = new Key[4];
+		for (int i = 0; i < keys.length; i++)
+			keys[i] = RenderCache.key(kit, i);
+		RenderCache cache = new RenderCache(300);
+		cache.put(keys[0], shot(100));
+		cache.put(keys[1], shot(100));
+		cache.put(keys[2], shot(100));
+		assertNotNull(cache.get(keys[0])); // touch, keys[1] is now the eldest
+		cache.put(keys[3], shot(100));
+		assertNull(cache.get(keys[1]), "Least recently used should be evicted");
+		assertNotNull(cache.get(keys[0]));
+		assertNotNull(cache.get(keys[2]));
+		assertNotNull(cache.get(keys[3]));
+		assertEquals(300, cache.frames());
+
+		cache.put(keys[1], shot(500)); // over budget on its own: kept, everything else goes
+		assertEquals(1, cache.size());
+		assertEquals(500, cache.frames());
+	}
+
+}
@@ -0,0 +1,146 @@
+package judahzone.test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import be.tarsos.dsp.util.fft.HannWindow;
+import judahzone.dev.FFTPlans;
+import judahzone.dev.STFT;
+
+/** Streaming STFT: frame placement, block size independence and the multi-reader ring. */
+public class STFTTest {
+
+	private static final int SIZE = 1024;
+	private static final int HOP = SIZE / 4;
+
+	/** frame k: the window over samples [k * hop, k * hop + size) */
+	private static float[] expected(float[] audio, int k) {
+		float[] result = new float[SIZE];
+		FFTPlans.get(SIZE, HannWindow.class).forwardTransform(audio, k * HOP, result);
+		return result;
+	}
+
+	private static void feed(STFT stft, float[] audio, int block) {
+		for (int off = 0; off < audio.length; off += block)
+			stft.process(audio, off, Math.min(block, audio.length - off));
+	}
+
+	@Test
+	void testFramesAtEveryHop() {
+		float[] audio = TestUtilities.noise(SIZE * 4, 1);
+		STFT stft = new STFT(SIZE, HOP, HannWindow.class, 16);
+		STFT.Reader reader = stft.reader();
+		float[] spectrum = new float[SIZE];
+		feed(stft, audio, 100); // not a multiple of the hop
+		assertEquals((audio.length - SIZE) / HOP + 1, stft.getFrames());
+		for (int k = 0; k < stft.getFrames(); k++) {
+			assertEquals(k, reader.poll(spectrum));
+			assertArrayEquals(expected(audio, k), spectrum, 0f, "frame " + k);
+		}
+		assertEquals(-1, reader.poll(spectrum));
+		assertEquals(0, reader.getDropped());
+	}
+
+	@Test
+	void testBlockSizeIndependent() {
+		float[] audio = TestUtilities.noise(SIZE * 3, 2);
+		STFT ones = new STFT(SIZE, 300, null, 16), blocks = new STFT(SIZE, 300, null, 16);
+		STFT.Reader a = ones.reader(), b = blocks.reader();
+		feed(ones, audio, 1);
+		feed(blocks, audio, 512);
+		float[] x = new float[SIZE], y = new float[SIZE];
+		assertEquals(ones.getFrames(), blocks.getFrames());
+		while (a.poll(x) >= 0) {
+			assertTrue(b.poll(y) >= 0);
+			assertArrayEquals(x, y, 0f);
+		}
+	}
+
+	@Test
+	void testReaders() {
+		float[] audio = TestUtilities.noise(SIZE * 8, 3);
+		STFT stft = new STFT(SIZE, 0.75f);
+		assertEquals(HOP, stft.getHop());
+		STFT.Reader fast = stft.reader(), slow = stft.reader(), newest = stft.reader();
+		float[] spectrum = new float[SIZE];
+		long expected = 0;
+		for (int off = 0; off < audio.length; off += 256) {
+			stft.process(audio, off, 256);
+			while (fast.poll(spectrum) >= 0)
+				expected++;
+		}
+		assertEquals(stft.getFrames(), expected, "a reader keeping up sees every frame");
+		assertEquals(0, fast.getDropped());
+
+		long frames = stft.getFrames();
+		assertEquals(frames - STFT.DEFAULT_CAPACITY, slow.poll(spectrum), "lapped: oldest still held");
+		assertEquals(frames - STFT.DEFAULT_CAPACITY, slow.getDropped());
+		assertEquals(STFT.DEFAULT_CAPACITY - 1, slow.available());
+
+		assertEquals(frames - 1, newest.latest(spectrum));
+		assertArrayEquals(expected(audio, (int) frames - 1), spectrum, 0f);
+		assertEquals(-1, newest.latest(spectrum));
+		assertEquals(0, newest.getDropped());
+		assertThrows(IllegalArgumentException.class, () -> new STFT(SIZE, SIZE + 1, null, 4));
+		assertEquals(STFT.DEFAULT_CAPACITY, stft.getCapacity());
+		assertEquals(4, new STFT(SIZE, HOP, null, 3).getCapacity());
+	}
+
+	@Test
+	void testConcurrentReadersNeverTorn() throws Exception {
+		final int frames = 400;
+		final float[] audio = TestUtilities.noise(SIZE + HOP * (frames - 1), 4);
+		final float[][] expected = new float[frames][];
+		for (int k = 0; k < frames; k++)
+			expected[k] = expected(audio, k);
+		final STFT stft = new STFT(SIZE, HOP, HannWindow.class, 2); // small ring, plenty of overwrites
+		assertEquals(2, stft.getCapacity());
+		final AtomicBoolean done = new AtomicBoolean();
+		final AtomicReference<Throwable> failure = new AtomicReference<>();
+		Thread[] consumers = new Thread[3];
+		for (int c = 0; c < consumers.length; c++) {
+			final STFT.Reader reader = stft.reader();
+			final boolean newest = c == 0;
+			consumers[c] = new Thread(() -> {
+				float[] spectrum = new float[SIZE];
+				try {
+					while (!done.get() || reader.available() > 0) {
+						long k = newest ? reader.latest(spectrum) : reader.poll(spectrum);
+						if (k >= 0)
+							assertArrayEquals(expected[(int) k], spectrum, 0f, "frame " + k);
+					}
+				} catch (Throwable t) {
+					failure.compareAndSet(null, t);
+				}
+			});
+			consumers[c].start();
+		}
+		feed(stft, audio, 64);
+		done.set(true);
+		for (Thread t : consumers)
+			t.join(10_000);
+		if (failure.get() != null)
+			throw new AssertionError(failure.get());
+		assertEquals(frames, stft.getFrames());
+	}
+
+	@RealTimeSafe(warmup = 2_000, iterations = 5_000)
+	void testProcessRealTimeSafe(RealTime rt) {
+		final STFT stft = new STFT(SIZE, 0.75f);
+		final STFT.Reader reader = stft.reader();
+		final float[] block = TestUtilities.noise(256, 5), spectrum = new float[SIZE];
+		rt.measure("stft.process + poll", () -> {
+			stft.process(block);
+			while (reader.poll(spectrum) >= 0) { }
+		});
+		assertTrue(stft.getFrames() > 0 && Float.isFinite(spectrum[3]));
+	}
+
+}
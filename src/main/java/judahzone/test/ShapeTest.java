@@ -6,7 +6,9 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.Test;
 
 import judahzone.data.Shape;
+import judahzone.dev.WavetableBank;
 import judahzone.util.AudioMetrics;
+import judahzone.util.Constants;
 
 public class ShapeTest {
 
@@ -49,4 +51,65 @@ public class ShapeTest {
 			assertTrue(hasNegative, "Shape " + shape + " should contain negative samples");
 		}
 	}
+
+	@Test
+	void testMipmapLevels() {
+		assertEquals(0, WavetableBank.level(1f / LENGTH), "Lowest notes should read full bandwidth");
+		assertEquals(WavetableBank.LEVELS, WavetableBank.level(0.45f), "Near Nyquist should read the fundamental only");
+		int last = 0;
+		for (float hz = 20f; hz < 20000f; hz *= 1.5f) {
+			int level = WavetableBank.levelForHz(hz);
+			assertTrue(level >= last, "Mip level should rise with pitch");
+			int harmonics = (LENGTH / 2) >> level;
+			assertTrue(level == WavetableBank.LEVELS || harmonics * hz / Constants.sampleRate() <= 0.5f,
+					"Level " + level + " aliases at " + hz + " Hz");
+			last = level;
+		}
+	}
+
+	@Test
+	void testMipmapsBandLimited() {
+		for (Shape shape : new Shape[] {Shape.SAW, Shape.SQR, Shape.TRI}) {
+			float[][] mips = WavetableBank.get(shape);
+			assertEquals(WavetableBank.LEVELS + 1, mips.length);
+			for (int level = 1; level <= WavetableBank.LEVELS; level++) {
+				float[] table = mips[level];
+				assertEquals(table[0], table[LENGTH], "Guard sample should wrap for " + shape);
+				int cap = (LENGTH / 2) >> level;
+				// energy just past the cap should be gone
+				for (int k = cap + 1; k <= Math.min(cap + 3, LENGTH / 2); k++)
+					assertTrue(magnitude(table, k) < 1e-4, shape + " level " + level + " leaks harmonic " + k);
+			}
+		}
+		// full bandwidth sine survives unchanged
+		float[] sin = Shape.SIN.getWave();
+		float[] mip = WavetableBank.table(Shape.SIN, 0);
+		for (int i = 0; i < LENGTH; i++)
+			assertEquals(sin[i], mip[i], 1e-4f);
+	}
+
+	@Test
+	void testWavetableLookup() {
+		float[] table = WavetableBank.table(Shape.SIN, WavetableBank.LEVELS);
+		for (int i = 0; i < 1000; i++) {
+			float phase = i / 1000f;
+			assertEquals(Math.sin(2 * Math.PI * phase), WavetableBank.lookup(table, phase), 1e-4);
+		}
+		WavetableBank.Osc osc = new WavetableBank.Osc(Shape.SAW);
+		osc.setFrequency(8000f);
+		float[] out = new float[4096];
+		osc.process(out, out.length);
+		for (float sample : out)
+			assertTrue(Float.isFinite(sample) && Math.abs(sample) < 1.5f, "Oscillator out of range: " + sample);
+	}
+
+	private static double magnitude(float[] table, int k) {
+		double re = 0, im = 0;
+		for (int n = 0; n < LENGTH; n++) {
+			double w = 2 * Math.PI * k * n / LENGTH;
+			re += table[n] * Math.cos(w);
+			im += table[n] * Math.sin(w);
+		}
+		return Math.hypot(re, im) * 2 / LENGTH;
+	}
 }
@@ -0,0 +1,48 @@
+package judahzone.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import judahzone.dev.SineSource;
+import judahzone.dev.SineSource.Backend;
+
+/** Every backend should produce the same tone as Math.sin, continuous across buffers. */
+public class SineSourceTest {
+
+	private static final double SR = 48000;
+	private static final double HZ = 441.3;
+	private static final int BLOCKS = 200;
+	private static final int SIZE = 512;
+
+	@Test
+	void testBackendsMatchExact() {
+		for (Backend backend : Backend.values()) {
+			float tolerance = backend == Backend.LUT ? 1e-3f : 1e-6f;
+			float[] expected = new float[SIZE];
+			float[] actual = new float[SIZE];
+			double exact = 0, phase = 0;
+			for (int block = 0; block < BLOCKS; block++) {
+				exact = SineSource.fill(Backend.EXACT, expected, 0, SIZE, HZ, SR, 0.5, exact);
+				phase = SineSource.fill(backend, actual, 0, SIZE, HZ, SR, 0.5, phase);
+				for (int i = 0; i < SIZE; i++)
+					assertEquals(expected[i], actual[i], tolerance, backend + " block " + block + " sample " + i);
+			}
+			assertEquals(exact, phase, 1e-9, backend + " phase drift");
+		}
+	}
+
+	@Test
+	void testChainedBuffersContinuous() {
+		float[] whole = new float[SIZE * 2];
+		float[] half = new float[SIZE];
+		SineSource.fill(Backend.EXACT, whole, 0, whole.length, HZ, SR, 1, 0);
+		SineSource source = new SineSource();
+		source.fill(half, HZ, SR, 1);
+		source.fill(half, HZ, SR, 1);
+		for (int i = 0; i < SIZE; i++)
+			assertEquals(whole[SIZE + i], half[i], 1e-6f);
+		assertEquals(SineSource.wrap(2 * Math.PI * HZ / SR * 2 * SIZE), source.getPhase(), 1e-9);
+	}
+
+}
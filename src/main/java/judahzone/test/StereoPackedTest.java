@@ -0,0 +1,97 @@
+package judahzone.test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import judahzone.dev.BiquadCascade;
+import judahzone.dev.BiquadCascade.Type;
+import judahzone.dev.StereoPacked;
+
+/** Packed L R frames against the split left/right buffers they replace. */
+public class StereoPackedTest {
+
+	private static final int FRAMES = 512;
+
+	@Test
+	void testInterleaveRoundTrip() {
+		float[] l = TestUtilities.noise(FRAMES, 1), r = TestUtilities.noise(FRAMES, 2);
+		float[] packed = StereoPacked.allocate(FRAMES);
+		StereoPacked.interleave(l, r, packed, FRAMES);
+		assertEquals(l[7], packed[14]);
+		assertEquals(r[7], packed[15]);
+		float[] l2 = new float[FRAMES], r2 = new float[FRAMES];
+		StereoPacked.deinterleave(packed, l2, r2, FRAMES);
+		assertArrayEquals(l, l2, 0f);
+		assertArrayEquals(r, r2, 0f);
+		StereoPacked.mix(packed, l2, r2, FRAMES);
+		assertEquals(2 * l[3], l2[3], 1e-6f);
+		assertEquals(2 * r[3], r2[3], 1e-6f);
+	}
+
+	@Test
+	void testGainPanAndRamp() {
+		float[] packed = StereoPacked.allocate(FRAMES);
+		Arrays.fill(packed, 1f);
+		StereoPacked.gain(packed, FRAMES, 0.5f, 0.25f);
+		assertEquals(0.5f, packed[10]);
+		assertEquals(0.25f, packed[11]);
+
+		Arrays.fill(packed, 1f);
+		StereoPacked.pan(packed, FRAMES, 1f, 0.5f);
+		assertEquals(1f, packed[0], 1e-6f, "unity at centre");
+		assertEquals(packed[0], packed[1], 1e-6f);
+		Arrays.fill(packed, 1f);
+		StereoPacked.pan(packed, FRAMES, 1f, 0f);
+		assertEquals(0f, packed[1], 1e-6f, "hard left");
+
+		Arrays.fill(packed, 1f);
+		StereoPacked.ramp(packed, FRAMES, 0f, 1f, 1f, 0f);
+		assertEquals(1f, packed[2 * FRAMES - 2], 1e-6f);
+		assertEquals(0f, packed[2 * FRAMES - 1], 1e-6f);
+		assertTrue(packed[0] < 0.01f && packed[1] > 0.99f);
+	}
+
+	@Test
+	void testPackedBiquadsMatchSplit() {
+		BiquadCascade split = new BiquadCascade(4);
+		BiquadCascade packedFilter = new BiquadCascade(4);
+		for (BiquadCascade b : new BiquadCascade[] {split, packedFilter}) {
+			b.set(0, Type.LoCut, 60, 0.7f, 0);
+			b.set(1, Type.Peak, 400, 0, -3, 1);
+			b.set(2, Type.Peak, 2500, 0, 5, 0.5f);
+			b.set(3, Type.HiCut, 9000, 0.7f, 0);
+		}
+		float[] l = TestUtilities.noise(FRAMES, 3), r = TestUtilities.noise(FRAMES, 4);
+		float[] packed = StereoPacked.allocate(FRAMES);
+		for (int block = 0; block < 3; block++) {
+			StereoPacked.interleave(l, r, packed, FRAMES);
+			split.process(l, r);
+			packedFilter.processPacked(packed, FRAMES);
+			float[] pl = new float[FRAMES], pr = new float[FRAMES];
+			StereoPacked.deinterleave(packed, pl, pr, FRAMES);
+			assertArrayEquals(l, pl, 0f, "left block " + block);
+			assertArrayEquals(r, pr, 0f, "right block " + block);
+		}
+	}
+
+	@RealTimeSafe(warmup = 20_000, iterations = 50_000)
+	void testPackedStripRealTimeSafe(RealTime rt) {
+		final float[] srcL = TestUtilities.noise(FRAMES, 5), srcR = TestUtilities.noise(FRAMES, 6);
+		final float[] l = new float[FRAMES], r = new float[FRAMES];
+		final float[] packed = StereoPacked.allocate(FRAMES);
+		final BiquadCascade band = BiquadCascade.cut(80, 8000, 0.7f);
+		Bench.assertBaseline(rt.measure("stereoPacked.strip", () -> {
+			StereoPacked.interleave(srcL, srcR, packed, FRAMES);
+			StereoPacked.pan(packed, FRAMES, 0.9f, 0.4f);
+			band.processPacked(packed, FRAMES);
+			StereoPacked.deinterleave(packed, l, r, FRAMES);
+		}));
+		assertTrue(Float.isFinite(l[0]) && Float.isFinite(r[0]));
+	}
+
+}
@@ -33,6 +33,7 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.Random;
 
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
@@ -41,6 +42,8 @@ import javax.sound.sampled.UnsupportedAudioFileException;
 
 import be.tarsos.dsp.io.TarsosDSPAudioFloatConverter;
 import be.tarsos.dsp.io.jvm.JVMAudioInputStream;
+import judahzone.dev.SineSource;
+import judahzone.dev.SineSource.Backend;
 import judahzone.util.Constants;
 
 
@@ -63,13 +66,21 @@ public abstract class TestUtilities {
 
     public static float[] audioBufferSine(double sampleRate, double f0, int numberOfSamples, double amplitudeF0) {
         final float[] buffer = new float[numberOfSamples];
-        for (int sample = 0; sample < buffer.length; sample++) {
-            final double time = sample / sampleRate;
-            buffer[sample] = (float) (amplitudeF0 * Math.sin(2 * Math.PI * f0 * time));
-        }
+        SineSource.fill(Backend.RECURSIVE, buffer, 0, numberOfSamples, f0, sampleRate, amplitudeF0, 0);
         return buffer;
     }
 
+    /**
+     * @return n samples of white noise in [-1, 1), the same for the same seed
+     */
+    public static float[] noise(int n, long seed) {
+        final Random rnd = new Random(seed);
+        final float[] result = new float[n];
+        for (int i = 0; i < n; i++)
+            result[i] = rnd.nextFloat() * 2f - 1f;
+        return result;
+    }
+
     /**
      * @return a 4096 samples long 44.1kHz sampled float buffer with the sound
      *         of a flute played double forte at A6 (theoretically 440Hz) without vibrato
@@ -270,11 +281,13 @@ public static class SineWave {
         }
     }
 
-    // test2: benchmark LUT+interpolation vs direct Math.sin
-
+    /** time each {@link Backend} against Math.sin */
+    public static void benchmark() {
+        SineSource.benchmark(1024, 50_000);
+    }
 
-    /**Fill `buf` with a Math.sin wave at freqHz. Returns the updated phase (radians) to use
-	 * for the next call so the tone is continuous across buffers.
+    /**Fill `buf` with a sine wave at freqHz, generated by a recursive oscillator. Returns the updated phase
+	 * (radians) to use for the next call so the tone is continuous across buffers.
 	 * @param buf       float[] buffer to fill (length = FFT_SIZE)
 	 * @param freqHz    desired frequency in Hz
 	 * @param sampleRate sample rate in Hz (e.g. 48000.0)
@@ -282,30 +295,20 @@ public static class SineWave {
 	 * @return new phase in radians to pass to the next call
 	 */
 	public static double fill(float[] buf, double freqHz, double sampleRate, double amplitude, double phase) {
+		return fill(Backend.RECURSIVE, buf, freqHz, sampleRate, amplitude, phase);
+	}
 
+	public static double fill(Backend backend, float[] buf, double freqHz, double sampleRate, double amplitude, double phase) {
 		if (buf == null || buf.length == 0) return phase;
-	    final double twoPi = 2.0 * Math.PI;
-	    // phase increment per sample (radians)
-	    final double phaseInc = twoPi * freqHz / sampleRate;
-
 	    // keep amplitude safe
 	    final double a = Math.max(0.0, Math.min(1.0, amplitude));
-
-	    for (int i = 0; i < buf.length; i++) {
-	        buf[i] = (float) (a * Math.sin(phase));
-	        phase += phaseInc;
-	        // wrap phase into [0, 2PI) to avoid unbounded growth
-	        if (phase >= twoPi) phase -= twoPi * Math.floor(phase / twoPi);
-	    }
-	    return phase;
+	    return SineSource.fill(backend, buf, 0, buf.length, freqHz, sampleRate, a, phase);
 	}
 
-	// Math.sin
 	public static double fill(float[] buf) {
     	return fill(buf, defaultFrequency, defaultSR, defaultAmplitude, 0);
     }
 
-	// Math.sin
     public static double fill(float[] buf, double phase) { // chain
     	return fill(buf, defaultFrequency, defaultSR, defaultAmplitude, phase);
     }
@@ -0,0 +1,118 @@
+package judahzone.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import judahzone.dev.VoicePool;
+import judahzone.dev.VoicePool.Steal;
+import judahzone.util.AudioMetrics;
+import judahzone.util.Constants;
+import net.judah.drums.noise.Ride;
+import net.judah.midi.Actives;
+
+/** Allocation, idle skipping and voice stealing of a polyphonic drum pool. */
+public class VoicePoolTest {
+
+	private static final int POLYPHONY = 3;
+	private static final int MAX_CHURN = 10_000;
+	private final float[] sumL = new float[Constants.bufSize()];
+	private final float[] sumR = new float[Constants.bufSize()];
+
+	private VoicePool<Ride> pool;
+
+	@BeforeEach
+	void init() {
+		pool = new VoicePool<>(POLYPHONY, () -> new Ride(new Actives(null, 0)));
+	}
+
+	@Test
+	void testIdlePoolIsSilent() {
+		assertEquals(0, pool.active());
+		pool.process(sumL, sumR);
+		assertTrue(AudioMetrics.rms(sumL) < DrumTest.RMS_TOLERANCE, "Idle pool should be silent");
+	}
+
+	@Test
+	void testRollUsesSeparateVoices() {
+		Ride first = pool.trigger();
+		pool.process(sumL, sumR);
+		Ride second = pool.trigger();
+		assertNotSame(first, second, "Retrigger during decay should ring on a new voice");
+		assertEquals(2, pool.active());
+		Arrays.fill(sumL, 0f);
+		pool.process(sumL, sumR);
+		assertTrue(AudioMetrics.rms(sumL) > DrumTest.EPS, "Pool should produce audio");
+	}
+
+	@Test
+	void testStealOldest() {
+		Ride oldest = pool.trigger();
+		for (int i = 1; i < POLYPHONY; i++) {
+			pool.process(sumL, sumR);
+			pool.trigger();
+		}
+		assertEquals(POLYPHONY, pool.active());
+		assertSame(oldest, pool.trigger(), "Full pool should steal the oldest voice");
+		assertEquals(POLYPHONY, pool.active(), "Stealing must not grow the pool");
+	}
+
+	@Test
+	void testStealQuietest() {
+		pool.setSteal(Steal.QUIETEST);
+		// staggered: each voice has decayed further than the one after it
+		Ride first = pool.trigger();
+		decay(3);
+		Ride second = pool.trigger();
+		decay(3);
+		pool.trigger();
+		decay(3);
+		first.trigger(null); // behind the pool's back: the oldest voice is now the loudest
+		decay(1); // measure
+		assertEquals(POLYPHONY, pool.active(), "every voice still sounding");
+		assertSame(second, pool.trigger(), "Full pool should steal the quietest voice, not the oldest");
+		assertEquals(POLYPHONY, pool.active());
+	}
+
+	@Test
+	void testQuietestIntoShorterBuffers() {
+		pool.setSteal(Steal.QUIETEST);
+		pool.trigger();
+		float[] shortL = new float[sumL.length / 2], shortR = new float[sumR.length / 2];
+		pool.process(shortL, shortR);
+		assertTrue(AudioMetrics.rms(shortL) > DrumTest.EPS, "Mixed up to the shorter length");
+	}
+
+	private void decay(int blocks) {
+		for (int i = 0; i < blocks; i++) {
+			Arrays.fill(sumL, 0f);
+			Arrays.fill(sumR, 0f);
+			pool.process(sumL, sumR);
+		}
+	}
+
+	@Test
+	void testVoicesReturnToIdle() {
+		pool.trigger();
+		pool.trigger();
+		int churn = 0;
+		while (pool.isSounding()) {
+			Arrays.fill(sumL, 0f);
+			Arrays.fill(sumR, 0f);
+			pool.process(sumL, sumR);
+			if (++churn > MAX_CHURN)
+				fail("Pool stuck sounding");
+		}
+		assertEquals(0, pool.active());
+		assertFalse(pool.isSounding());
+	}
+
+}
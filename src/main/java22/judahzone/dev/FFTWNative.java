@@ -0,0 +1,218 @@
+package judahzone.dev;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_FLOAT;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SymbolLookup;
+import java.lang.invoke.MethodHandle;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/** FFTW (libfftw3f, single precision) real transforms through the Java FFM API, replacing the bytedeco
+ *  DoublePointer executors sketched in {@link FFTWWrappers}.
+ *  <p>One 64-byte aligned off-heap segment of 2 * (n/2 + 1) floats holds the input and, in place, the
+ *  n/2 + 1 complex bins. Plans are made once per instance with FFTW_MEASURE; FFTW's wisdom file (system
+ *  property fftw.wisdom, default ~/.cache/judahzone/fftwf.wisdom) is imported at class load and exported after
+ *  planning, so only the first run of a size pays for measuring.
+ *  <p>Callers can write straight into {@link #segment()} and {@link #forward()} without any marshalling. The
+ *  float[] methods mirror Tarsos' FFT (packed layout [Re 0, Re n/2, Re 1, Im 1, ...], scaled inverse) at the cost
+ *  of one bulk copy each way, which happens to line up: FFTW's bins 1..n/2-1 sit where Tarsos packs them.
+ *  <p>If libfftw3f can't be loaded {@link #isAvailable()} is false and FFTCompare falls back to the pure-Java
+ *  Tarsos engine. FFM is final in Java 22, so this source set (src/main/java22) is only compiled by the jdk22
+ *  profile; run with --enable-native-access=ALL-UNNAMED to silence the restricted method warning. */
+public final class FFTWNative implements AutoCloseable {
+
+	/** fftw3.h planner flags */
+	static final int FFTW_MEASURE = 0;
+	static final int FFTW_ESTIMATE = 1 << 6;
+
+	private static final String[] LIBRARIES = {"libfftw3f.so.3", "libfftw3f.so", "libfftw3f.3.dylib", "libfftw3f-3.dll"};
+	private static final Path WISDOM = Path.of(System.getProperty("fftw.wisdom",
+			System.getProperty("user.home") + "/.cache/judahzone/fftwf.wisdom"));
+
+	private static final MethodHandle PLAN_R2C; // fftwf_plan fftwf_plan_dft_r2c_1d(int n, float *in, fftwf_complex *out, unsigned flags)
+	private static final MethodHandle PLAN_C2R; // fftwf_plan fftwf_plan_dft_c2r_1d(int n, fftwf_complex *in, float *out, unsigned flags)
+	private static final MethodHandle EXECUTE; // void fftwf_execute(const fftwf_plan p)
+	private static final MethodHandle DESTROY; // void fftwf_destroy_plan(fftwf_plan p)
+	private static final MethodHandle IMPORT_WISDOM; // int fftwf_import_wisdom_from_filename(const char *filename)
+	private static final MethodHandle EXPORT_WISDOM; // int fftwf_export_wisdom_to_filename(const char *filename)
+	private static final Throwable UNAVAILABLE;
+
+	static {
+		MethodHandle r2c = null, c2r = null, execute = null, destroy = null, importWisdom = null, exportWisdom = null;
+		Throwable failure = null;
+		try {
+			SymbolLookup lib = load();
+			Linker linker = Linker.nativeLinker();
+			FunctionDescriptor plan = FunctionDescriptor.of(ADDRESS, JAVA_INT, ADDRESS, ADDRESS, JAVA_INT);
+			r2c = linker.downcallHandle(lib.find("fftwf_plan_dft_r2c_1d").orElseThrow(), plan);
+			c2r = linker.downcallHandle(lib.find("fftwf_plan_dft_c2r_1d").orElseThrow(), plan);
+			execute = linker.downcallHandle(lib.find("fftwf_execute").orElseThrow(), FunctionDescriptor.ofVoid(ADDRESS));
+			destroy = linker.downcallHandle(lib.find("fftwf_destroy_plan").orElseThrow(), FunctionDescriptor.ofVoid(ADDRESS));
+			FunctionDescriptor file = FunctionDescriptor.of(JAVA_INT, ADDRESS);
+			importWisdom = linker.downcallHandle(lib.find("fftwf_import_wisdom_from_filename").orElseThrow(), file);
+			exportWisdom = linker.downcallHandle(lib.find("fftwf_export_wisdom_to_filename").orElseThrow(), file);
+			wisdom(importWisdom, false);
+		} catch (Throwable t) { // missing library or symbols, native access denied, import failed
+			failure = t;
+		}
+		PLAN_R2C = r2c;
+		PLAN_C2R = c2r;
+		EXECUTE = execute;
+		DESTROY = destroy;
+		IMPORT_WISDOM = importWisdom;
+		EXPORT_WISDOM = exportWisdom;
+		UNAVAILABLE = failure;
+	}
+
+	private static SymbolLookup load() {
+		IllegalArgumentException missing = new IllegalArgumentException("libfftw3f not found");
+		for (String name : LIBRARIES) {
+			try {
+				return SymbolLookup.libraryLookup(name, Arena.global());
+			} catch (IllegalArgumentException e) {
+				missing.addSuppressed(e);
+			}
+		}
+		throw missing;
+	}
+
+	/** import or export, a missing or unwritable file only reported: wisdom is an optimization
+	 *  @throws Throwable from the downcall itself */
+	private static synchronized void wisdom(MethodHandle io, boolean export) throws Throwable {
+		if (!export && !Files.isReadable(WISDOM))
+			return;
+		try (Arena arena = Arena.ofConfined()) {
+			if (export)
+				Files.createDirectories(WISDOM.getParent());
+			int ok = (int) io.invokeExact(arena.allocateFrom(WISDOM.toString()));
+			if (ok == 0)
+				System.err.println("fftw wisdom " + (export ? "export" : "import") + " failed: " + WISDOM);
+		} catch (IOException e) {
+			System.err.println("fftw wisdom: " + e.getMessage());
+		}
+	}
+
+	public static boolean isAvailable() {
+		return UNAVAILABLE == null;
+	}
+
+	/** why FFTW isn't available, or null */
+	public static Throwable getUnavailableReason() {
+		return UNAVAILABLE;
+	}
+
+	private final int n;
+	private final Arena arena;
+	private final MemorySegment data;
+	private final MemorySegment forwardPlan;
+	private final MemorySegment inversePlan;
+	private boolean closed;
+
+	public FFTWNative(int n) {
+		if (!isAvailable())
+			throw new IllegalStateException("FFTW unavailable", UNAVAILABLE);
+		if (n < 2 || (n & 1) != 0)
+			throw new IllegalArgumentException("size " + n);
+		this.n = n;
+		arena = Arena.ofShared();
+		data = arena.allocate((long) JAVA_FLOAT.byteSize() * 2 * (n / 2 + 1), 64);
+		try {
+			synchronized (FFTWNative.class) { // the planner is not thread safe
+				forwardPlan = (MemorySegment) PLAN_R2C.invokeExact(n, data, data, FFTW_MEASURE);
+				inversePlan = (MemorySegment) PLAN_C2R.invokeExact(n, data, data, FFTW_MEASURE);
+			}
+		} catch (Throwable t) {
+			arena.close();
+			throw new IllegalStateException(t);
+		}
+		if (forwardPlan.equals(MemorySegment.NULL) || inversePlan.equals(MemorySegment.NULL)) {
+			arena.close();
+			throw new IllegalStateException("fftw planner failed, size " + n);
+		}
+		try {
+			wisdom(EXPORT_WISDOM, true);
+		} catch (Throwable t) {
+			close();
+			throw new IllegalStateException(t);
+		}
+		data.fill((byte) 0); // MEASURE scribbles on the buffer
+	}
+
+	public int size() { return n; }
+
+	/** in-place buffer: n real samples in, n/2 + 1 interleaved complex bins out */
+	public MemorySegment segment() { return data; }
+
+	/** real to complex, in place, unscaled */
+	public void forward() {
+		execute(forwardPlan);
+	}
+
+	/** complex to real, in place, unscaled (n times the input) */
+	public void inverse() {
+		execute(inversePlan);
+	}
+
+	private void execute(MemorySegment plan) {
+		if (closed)
+			throw new IllegalStateException("closed"); // the plan has been freed
+		try {
+			EXECUTE.invokeExact(plan);
+		} catch (Throwable t) {
+			throw new IllegalStateException(t);
+		}
+	}
+
+	/** in place on the first n floats of buffer, Tarsos packed layout out */
+	public void forwardTransform(float[] buffer) {
+		MemorySegment.copy(buffer, 0, data, JAVA_FLOAT, 0, n);
+		forward();
+		MemorySegment.copy(data, JAVA_FLOAT, 0, buffer, 0, n);
+		buffer[1] = data.getAtIndex(JAVA_FLOAT, n); // Re n/2 into the imaginary slot of DC
+	}
+
+	/** Tarsos packed layout in, n real samples out, scaled by 1/n */
+	public void backwardsTransform(float[] buffer) {
+		MemorySegment.copy(buffer, 0, data, JAVA_FLOAT, 0, n);
+		data.setAtIndex(JAVA_FLOAT, 1, 0f);
+		data.setAtIndex(JAVA_FLOAT, n, buffer[1]);
+		data.setAtIndex(JAVA_FLOAT, n + 1, 0f);
+		inverse();
+		MemorySegment.copy(data, JAVA_FLOAT, 0, buffer, 0, n);
+		final float scale = 1f / n;
+		for (int i = 0; i < n; i++)
+			buffer[i] *= scale;
+	}
+
+	/** magnitudes of a packed spectrum, as Tarsos' FFT.modulus */
+	public static void modulus(float[] buffer, float[] amplitudes) {
+		for (int i = 0; i < amplitudes.length; i++) {
+			final float re = buffer[2 * i], im = buffer[2 * i + 1];
+			amplitudes[i] = (float) Math.sqrt(re * re + im * im);
+		}
+	}
+
+	/** frees the plans and the buffer, once; later calls do nothing */
+	@Override
+	public synchronized void close() {
+		if (closed)
+			return;
+		closed = true;
+		try {
+			DESTROY.invokeExact(forwardPlan);
+			DESTROY.invokeExact(inversePlan);
+		} catch (Throwable t) {
+			throw new IllegalStateException(t);
+		} finally {
+			arena.close();
+		}
+	}
+
+}
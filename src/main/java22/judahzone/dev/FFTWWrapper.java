@@ -0,0 +1,20 @@
+package judahzone.dev;
+
+/** FFTCompare's view of {@link FFTWNative}, loaded by name so the main sources build without JDK 22. */
+class FFTWWrapper implements FFTLibraryWrapper {
+    private final FFTWNative fft;
+
+    public FFTWWrapper(int fftSize) {
+        fft = new FFTWNative(fftSize);
+    }
+
+    @Override
+    public void forwardTransform(float[] buffer) {
+        fft.forwardTransform(buffer);
+    }
+
+    @Override
+    public void modulus(float[] buffer, float[] amplitudes) {
+        FFTWNative.modulus(buffer, amplitudes);
+    }
+}
@@ -0,0 +1,63 @@
+package judahzone.test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import be.tarsos.dsp.util.fft.FFT;
+import judahzone.dev.FFTWNative;
+
+/** FFTW through FFM against Tarsos' FFT; skipped where libfftw3f isn't installed. */
+public class FFTWNativeTest {
+
+	private static final int N = 1024;
+
+	@BeforeEach
+	void available() {
+		assumeTrue(FFTWNative.isAvailable(), "no fftw: " + FFTWNative.getUnavailableReason());
+	}
+
+	@Test
+	void testForwardMatchesTarsos() {
+		float[] tarsos = TestUtilities.noise(N, 1), fftw = tarsos.clone();
+		new FFT(N).forwardTransform(tarsos);
+		try (FFTWNative fft = new FFTWNative(N)) {
+			fft.forwardTransform(fftw);
+		}
+		assertArrayEquals(tarsos, fftw, 1e-3f);
+	}
+
+	@Test
+	void testRoundTrip() {
+		float[] src = TestUtilities.noise(N, 2), buf = src.clone();
+		try (FFTWNative fft = new FFTWNative(N)) {
+			fft.forwardTransform(buf);
+			fft.backwardsTransform(buf);
+		}
+		assertArrayEquals(src, buf, 1e-5f);
+	}
+
+	@Test
+	void testCloseTwice() {
+		FFTWNative fft = new FFTWNative(N);
+		fft.close();
+		fft.close(); // plans freed once
+		assertThrows(IllegalStateException.class, fft::forward);
+	}
+
+	@RealTimeSafe(warmup = 20_000, iterations = 50_000)
+	void testTransformRealTimeSafe(RealTime rt) {
+		assumeTrue(FFTWNative.isAvailable());
+		final float[] src = TestUtilities.noise(N, 3), buf = new float[N];
+		final FFTWNative fft = new FFTWNative(N);
+		rt.measure("fftw.forward", () -> {
+			System.arraycopy(src, 0, buf, 0, N);
+			fft.forwardTransform(buf);
+		});
+		fft.close();
+	}
+
+}